@@ -0,0 +1,40 @@
+#!/bin/sh
+# Drives a running instance with `hey` (https://github.com/rakyll/hey), prints its latency distribution and appends
+# throughput and tail latency to load-test-results.tsv. Compare the execution modes by running it once against each:
+#   ./mvnw spring-boot:run                                                                             -> platform
+#   ./mvnw spring-boot:run -Dspring-boot.run.arguments=--et.execution.virtual-threads.enabled=true   -> virtual (JDK 21+)
+#   ./mvnw spring-boot:run -Dspring-boot.run.arguments=--spring.profiles.active=reactive              -> reactive
+# Usage: scripts/load-test.sh <mode> [base-url] [concurrency] [requests]
+set -e
+
+MODE=${1:?mode label required, e.g. platform, virtual or reactive}
+BASE_URL=${2:-http://localhost:8080}
+CONCURRENCY=${3:-2000}
+REQUESTS=${4:-200000}
+RESULTS=${RESULTS:-load-test-results.tsv}
+EMAIL="load-$(date +%s)@example.com"
+
+TOKEN=$(curl -sf -H 'Content-Type: application/json' \
+  -d "{\"firstName\": \"Load\", \"lastName\": \"Test\", \"email\": \"$EMAIL\", \"password\": \"password\"}" \
+  "$BASE_URL/api/users/register" | sed 's/.*"token":"\([^"]*\)".*/\1/')
+
+CATEGORY_ID=$(curl -sf -H 'Content-Type: application/json' -H "Authorization: Bearer $TOKEN" \
+  -d '{"title": "Load", "description": "Load test"}' \
+  "$BASE_URL/api/categories" | sed 's/.*"categoryId":\([0-9]*\).*/\1/')
+
+for i in $(seq 1 100); do
+  curl -sf -o /dev/null -H 'Content-Type: application/json' -H "Authorization: Bearer $TOKEN" \
+    -d "{\"amount\": $i.25, \"note\": \"load $i\", \"transactionDate\": $((1600000000000 + i))}" \
+    "$BASE_URL/api/categories/$CATEGORY_ID/transactions"
+done
+
+OUTPUT=$(hey -z 60s -c "$CONCURRENCY" -n "$REQUESTS" -H "Authorization: Bearer $TOKEN" \
+  "$BASE_URL/api/categories/$CATEGORY_ID/transactions?from=1600000000000&to=1600000000050")
+echo "$OUTPUT"
+
+[ -f "$RESULTS" ] || printf 'mode\tclients\trequests_per_sec\tp50_s\tp99_s\tnon_2xx\n' > "$RESULTS"
+RPS=$(echo "$OUTPUT" | awk '/Requests\/sec/ {print $2}')
+P50=$(echo "$OUTPUT" | awk '/ 50% in/ {print $3}')
+P99=$(echo "$OUTPUT" | awk '/ 99% in/ {print $3}')
+NON_2XX=$(echo "$OUTPUT" | awk '/\[[0-9]+\]/ && $1 !~ /\[2/ {n += $2} END {print n + 0}')
+printf '%s\t%s\t%s\t%s\t%s\t%s\n' "$MODE" "$CONCURRENCY" "$RPS" "$P50" "$P99" "$NON_2XX" >> "$RESULTS"
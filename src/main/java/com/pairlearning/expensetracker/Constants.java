@@ -6,4 +6,30 @@ public class Constants {
 
     public static final long TOKEN_VALIDITY = 2 * 60 * 60 * 1000;
 
+    public static final int TRANSACTION_PAGE_MAX_SIZE = 500;
+
+    public static final int STREAM_FETCH_SIZE = 500;
+
+    public static final int TRANSACTION_BATCH_CHUNK_SIZE = 1000;
+
+    // et_transactions.amount is numeric(10,2)
+    public static final long TRANSACTION_AMOUNT_LIMIT_CENTS = 10_000_000_000L;
+
+    // et_users.first_name / last_name and et_users.email
+    public static final int USER_NAME_MAX_LENGTH = 20;
+
+    public static final int USER_EMAIL_MAX_LENGTH = 30;
+
+    // Increment of et_users_seq, et_categories_seq and et_transactions_seq, set in 007-sequence-id-blocks.sql
+    public static final int ID_BLOCK_SIZE = 50;
+
+    public static final String CATEGORY_CHANGES_CHANNEL = "et_category_changes";
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final int IDEMPOTENCY_KEY_MAX_LENGTH = 255;
+
+    // A shared in-flight key older than this is assumed orphaned by a node that died mid-request
+    public static final long IDEMPOTENCY_IN_FLIGHT_TIMEOUT_MS = 60 * 1000;
+
 }
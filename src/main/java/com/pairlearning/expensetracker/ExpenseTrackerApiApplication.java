@@ -1,15 +1,56 @@
 package com.pairlearning.expensetracker;
 
 import com.pairlearning.expensetracker.filters.AuthFilter;
+import com.pairlearning.expensetracker.filters.ConcurrencyLimitFilter;
+import com.pairlearning.expensetracker.filters.IdempotencyFilter;
+import com.pairlearning.expensetracker.filters.LoginThrottleFilter;
+import com.pairlearning.expensetracker.filters.TokenCache;
+import com.pairlearning.expensetracker.repositories.CategoryRepository;
+import com.pairlearning.expensetracker.repositories.IdempotencyStore;
+import com.pairlearning.expensetracker.repositories.InMemoryIdempotencyStore;
+import com.pairlearning.expensetracker.repositories.JdbcIdempotencyStore;
+import com.pairlearning.expensetracker.repositories.MeteredJdbcTemplate;
+import com.pairlearning.expensetracker.repositories.RoutingDataSource;
+import com.pairlearning.expensetracker.repositories.TransactionRepository;
+import com.pairlearning.expensetracker.services.CategoryCache;
+import com.pairlearning.expensetracker.services.CategoryCacheListener;
+import com.pairlearning.expensetracker.services.LoginThrottle;
+import com.pairlearning.expensetracker.services.TransactionWriteBuffer;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.scheduling.concurrent.ConcurrentTaskExecutor;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @SpringBootApplication
+@EnableScheduling
 public class ExpenseTrackerApiApplication {
 
 	public static void main(String[] args) {
@@ -30,12 +71,190 @@ public class ExpenseTrackerApiApplication {
 	}
 
 	@Bean
-	public FilterRegistrationBean<AuthFilter> filterRegistrationBean() {
+	@ConditionalOnProperty(name = "et.auth.token-cache.enabled", havingValue = "true")
+	public TokenCache tokenCache(@Value("${et.auth.token-cache.maximum-size}") long maximumSize) {
+		return new TokenCache(maximumSize);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.category-cache.enabled", havingValue = "true")
+	public CategoryCache categoryCache(@Value("${et.category-cache.maximum-size}") long maximumSize,
+									   @Value("${et.category-cache.expire-after-write-seconds}") long expireAfterWriteSeconds,
+									   CategoryRepository categoryRepository) {
+		return new CategoryCache(maximumSize, expireAfterWriteSeconds, categoryRepository);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.category-cache.enabled", havingValue = "true")
+	public CategoryCacheListener categoryCacheListener(CategoryCache categoryCache, DataSourceProperties dataSourceProperties) {
+		return new CategoryCacheListener(categoryCache, dataSourceProperties.determineUrl(),
+				dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+	}
+
+	@Bean
+	public FilterRegistrationBean<AuthFilter> filterRegistrationBean(ObjectProvider<TokenCache> tokenCache, MeterRegistry meterRegistry) {
 		FilterRegistrationBean<AuthFilter> registrationBean = new FilterRegistrationBean<>();
-		AuthFilter authFilter = new AuthFilter();
+		AuthFilter authFilter = new AuthFilter(tokenCache.getIfAvailable(), meterRegistry);
 		registrationBean.setFilter(authFilter);
+		registrationBean.addUrlPatterns("/api/categories/*", "/api/reports/*");
+		registrationBean.setOrder(3);
+		return registrationBean;
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.idempotency.store", havingValue = "memory", matchIfMissing = true)
+	public InMemoryIdempotencyStore inMemoryIdempotencyStore(@Value("${et.idempotency.maximum-size}") long maximumSize,
+															 @Value("${et.idempotency.ttl-seconds}") long ttlSeconds) {
+		return new InMemoryIdempotencyStore(maximumSize, ttlSeconds);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.idempotency.store", havingValue = "jdbc")
+	public JdbcIdempotencyStore jdbcIdempotencyStore(JdbcTemplate jdbcTemplate, @Value("${et.idempotency.ttl-seconds}") long ttlSeconds) {
+		return new JdbcIdempotencyStore(jdbcTemplate, ttlSeconds);
+	}
+
+	@Bean
+	public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotencyStore idempotencyStore, MeterRegistry meterRegistry) {
+		FilterRegistrationBean<IdempotencyFilter> registrationBean = new FilterRegistrationBean<>();
+		registrationBean.setFilter(new IdempotencyFilter(idempotencyStore, meterRegistry));
 		registrationBean.addUrlPatterns("/api/categories/*");
+		registrationBean.setOrder(4);
+		return registrationBean;
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.login-throttle.enabled", havingValue = "true")
+	public LoginThrottle emailLoginThrottle(@Value("${et.login-throttle.maximum-size}") long maximumSize,
+											@Value("${et.login-throttle.email.capacity}") long capacity,
+											@Value("${et.login-throttle.email.refill-per-minute}") long refillPerMinute,
+											MeterRegistry meterRegistry) {
+		return new LoginThrottle("email", maximumSize, capacity, refillPerMinute, meterRegistry);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.login-throttle.enabled", havingValue = "true")
+	public LoginThrottle addressLoginThrottle(@Value("${et.login-throttle.maximum-size}") long maximumSize,
+											  @Value("${et.login-throttle.address.capacity}") long capacity,
+											  @Value("${et.login-throttle.address.refill-per-minute}") long refillPerMinute,
+											  MeterRegistry meterRegistry) {
+		return new LoginThrottle("address", maximumSize, capacity, refillPerMinute, meterRegistry);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.login-throttle.enabled", havingValue = "true")
+	public FilterRegistrationBean<LoginThrottleFilter> loginThrottleFilter(@Qualifier("addressLoginThrottle") LoginThrottle addressLoginThrottle) {
+		FilterRegistrationBean<LoginThrottleFilter> registrationBean = new FilterRegistrationBean<>();
+		registrationBean.setFilter(new LoginThrottleFilter(addressLoginThrottle));
+		registrationBean.addUrlPatterns("/api/users/login", "/api/users/register");
+		registrationBean.setOrder(1);
 		return registrationBean;
 	}
 
+	@Bean
+	@ConditionalOnProperty(name = "et.execution.virtual-threads.enabled", havingValue = "true")
+	public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+		return protocolHandler -> protocolHandler.setExecutor(VirtualThreads.newThreadPerTaskExecutor());
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.execution.virtual-threads.enabled", havingValue = "true")
+	public WebMvcConfigurer virtualThreadAsyncConfigurer() {
+		// Streaming responses and async results run here rather than on the Tomcat executor
+		return new WebMvcConfigurer() {
+			@Override
+			public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+				configurer.setTaskExecutor(new ConcurrentTaskExecutor(VirtualThreads.newThreadPerTaskExecutor()));
+			}
+		};
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.execution.virtual-threads.enabled", havingValue = "true")
+	public FilterRegistrationBean<ConcurrencyLimitFilter> concurrencyLimitFilter(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize,
+																				 @Value("${et.execution.acquire-timeout-ms}") long acquireTimeoutMs,
+																				 MeterRegistry meterRegistry) {
+		FilterRegistrationBean<ConcurrencyLimitFilter> registrationBean = new FilterRegistrationBean<>();
+		registrationBean.setFilter(new ConcurrencyLimitFilter(poolSize, acquireTimeoutMs, meterRegistry));
+		registrationBean.addUrlPatterns("/api/*");
+		registrationBean.setOrder(2);
+		return registrationBean;
+	}
+
+	@Bean(destroyMethod = "shutdown")
+	public ThreadPoolExecutor registrationInsertExecutor(@Value("${et.registration.insert-pool-size:${spring.datasource.hikari.maximum-pool-size:10}}") int poolSize,
+														 @Value("${et.registration.insert-queue-capacity}") int queueCapacity,
+														 MeterRegistry meterRegistry) {
+		// Bounded like the bcrypt pool: a registration burst is turned away with 503 instead of queueing without limit
+		AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				runnable -> {
+					Thread thread = new Thread(runnable, "registration-insert-" + threadCount.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				},
+				new ThreadPoolExecutor.AbortPolicy());
+		Gauge.builder("et.registration.insert.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+		return executor;
+	}
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	@ConditionalOnProperty(name = "et.datasource.replica.jdbc-url")
+	public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+		HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		dataSource.setPoolName("primary");
+		return dataSource;
+	}
+
+	@Bean
+	@ConfigurationProperties("et.datasource.replica")
+	@ConditionalOnProperty(name = "et.datasource.replica.jdbc-url")
+	public HikariDataSource replicaDataSource(DataSourceProperties dataSourceProperties) {
+		// Credentials default to the primary's; et.datasource.replica.* binds over them
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setPoolName("replica");
+		dataSource.setUsername(dataSourceProperties.determineUsername());
+		dataSource.setPassword(dataSourceProperties.determinePassword());
+		dataSource.setReadOnly(true);
+		return dataSource;
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.datasource.replica.jdbc-url")
+	public RoutingDataSource routingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+											   @Qualifier("replicaDataSource") DataSource replicaDataSource,
+											   @Value("${et.datasource.read-your-writes-ms}") long readYourWritesMs,
+											   MeterRegistry meterRegistry) {
+		return new RoutingDataSource(primaryDataSource, replicaDataSource, readYourWritesMs, meterRegistry);
+	}
+
+	@Bean
+	@Primary
+	@ConditionalOnProperty(name = "et.datasource.replica.jdbc-url")
+	public DataSource dataSource(RoutingDataSource routingDataSource) {
+		return new LazyConnectionDataSourceProxy(routingDataSource);
+	}
+
+	@Bean
+	@ConditionalOnProperty(name = "et.transaction-buffer.enabled", havingValue = "true")
+	public TransactionWriteBuffer transactionWriteBuffer(TransactionRepository transactionRepository,
+														 PlatformTransactionManager transactionManager,
+														 ObjectProvider<RoutingDataSource> routingDataSource,
+														 ObjectProvider<CategoryCache> categoryCache,
+														 @Value("${et.transaction-buffer.capacity}") int capacity,
+														 @Value("${et.transaction-buffer.max-batch-size}") int maxBatchSize,
+														 @Value("${et.transaction-buffer.max-delay-ms}") long maxDelayMs,
+														 @Value("${et.transaction-buffer.wait-timeout-ms}") long waitTimeoutMs,
+														 MeterRegistry meterRegistry) {
+		return new TransactionWriteBuffer(transactionRepository, transactionManager, routingDataSource.getIfAvailable(),
+				categoryCache.getIfAvailable(), capacity, maxBatchSize, maxDelayMs, waitTimeoutMs, meterRegistry);
+	}
+
+	@Bean
+	public JdbcTemplate jdbcTemplate(DataSource dataSource, MeterRegistry meterRegistry) {
+		return new MeteredJdbcTemplate(dataSource, meterRegistry);
+	}
+
 }
@@ -0,0 +1,108 @@
+package com.pairlearning.expensetracker;
+
+import com.pairlearning.expensetracker.filters.AuthFilter;
+import com.pairlearning.expensetracker.filters.ReactiveAuthFilter;
+import com.pairlearning.expensetracker.filters.ReactiveLoginThrottleFilter;
+import com.pairlearning.expensetracker.filters.TokenCache;
+import com.pairlearning.expensetracker.repositories.R2dbcCategoryRepository;
+import com.pairlearning.expensetracker.repositories.R2dbcTransactionRepository;
+import com.pairlearning.expensetracker.repositories.ReactiveCategoryRepository;
+import com.pairlearning.expensetracker.repositories.ReactiveTransactionRepository;
+import com.pairlearning.expensetracker.repositories.SequenceIdAllocator;
+import com.pairlearning.expensetracker.resources.CategoryHandler;
+import com.pairlearning.expensetracker.resources.TransactionHandler;
+import com.pairlearning.expensetracker.services.LoginThrottle;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.connectionfactory.R2dbcTransactionManager;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.DELETE;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.PUT;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+/**
+ * WebFlux + R2DBC stack for the category and transaction APIs, on with {@code spring.profiles.active=reactive}.
+ * Boot 2.2 has no R2DBC auto-configuration, so the pool is built here from the {@code et.r2dbc.*} properties.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveConfiguration {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionPool connectionFactory(@Value("${et.r2dbc.url}") String url,
+                                            @Value("${et.r2dbc.username}") String username,
+                                            @Value("${et.r2dbc.password}") String password,
+                                            @Value("${et.r2dbc.pool.max-size}") int maxSize) {
+        ConnectionFactory connectionFactory = ConnectionFactories.get(ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+        return new ConnectionPool(ConnectionPoolConfiguration.builder(connectionFactory)
+                .maxSize(maxSize)
+                .build());
+    }
+
+    @Bean
+    public DatabaseClient databaseClient(ConnectionFactory connectionFactory) {
+        return DatabaseClient.create(connectionFactory);
+    }
+
+    @Bean
+    public TransactionalOperator transactionalOperator(ConnectionFactory connectionFactory) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    @Bean
+    public ReactiveCategoryRepository reactiveCategoryRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+                                                                 SequenceIdAllocator idAllocator) {
+        return new R2dbcCategoryRepository(databaseClient, transactionalOperator, idAllocator);
+    }
+
+    @Bean
+    public ReactiveTransactionRepository reactiveTransactionRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+                                                                       SequenceIdAllocator idAllocator) {
+        return new R2dbcTransactionRepository(databaseClient, transactionalOperator, idAllocator);
+    }
+
+    @Bean
+    public ReactiveAuthFilter reactiveAuthFilter(ObjectProvider<TokenCache> tokenCache, MeterRegistry meterRegistry) {
+        return new ReactiveAuthFilter(new AuthFilter(tokenCache.getIfAvailable(), meterRegistry), "/api/categories");
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "et.login-throttle.enabled", havingValue = "true")
+    public ReactiveLoginThrottleFilter reactiveLoginThrottleFilter(@Qualifier("addressLoginThrottle") LoginThrottle addressLoginThrottle) {
+        return new ReactiveLoginThrottleFilter(addressLoginThrottle, "/api/users/");
+    }
+
+    @Bean
+    public RouterFunction<ServerResponse> categoryRoutes(CategoryHandler categoryHandler, TransactionHandler transactionHandler) {
+        return route(GET("/api/categories"), categoryHandler::getAllCategories)
+                .andRoute(GET("/api/categories/{categoryId}"), categoryHandler::getCategoryById)
+                .andRoute(POST("/api/categories"), categoryHandler::addCategory)
+                .andRoute(PUT("/api/categories/{categoryId}"), categoryHandler::updateCategory)
+                .andRoute(DELETE("/api/categories/{categoryId}"), categoryHandler::deleteCategory)
+                .andRoute(GET("/api/categories/{categoryId}/transactions"), transactionHandler::getAllTransactions)
+                .andRoute(GET("/api/categories/{categoryId}/transactions/{transactionId}"), transactionHandler::getTransactionById)
+                .andRoute(POST("/api/categories/{categoryId}/transactions"), transactionHandler::addTransaction)
+                .andRoute(PUT("/api/categories/{categoryId}/transactions/{transactionId}"), transactionHandler::updateTransaction)
+                .andRoute(DELETE("/api/categories/{categoryId}/transactions/{transactionId}"), transactionHandler::deleteTransaction);
+    }
+}
@@ -0,0 +1,22 @@
+package com.pairlearning.expensetracker;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual threads through reflection, so the application keeps its Java 8 bytecode and only needs JDK 21 at
+ * runtime when the virtual-thread execution mode is switched on.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {}
+
+    public static ExecutorService newThreadPerTaskExecutor() throws IllegalStateException {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("et.execution.virtual-threads.enabled needs JDK 21 or newer, running on "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+}
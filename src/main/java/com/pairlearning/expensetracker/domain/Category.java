@@ -1,34 +1,43 @@
 package com.pairlearning.expensetracker.domain;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 public class Category {
 
-    private Integer categoryId;
-    private Integer userId;
+    private int categoryId;
+    private int userId;
     private String title;
     private String description;
-    private Double totalExpense;
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long totalExpense;
+    private int transactionCount;
 
-    public Category(Integer categoryId, Integer userId, String title, String description, Double totalExpense) {
+    public Category(int categoryId, int userId, String title, String description, long totalExpense, int transactionCount) {
         this.categoryId = categoryId;
         this.userId = userId;
         this.title = title;
         this.description = description;
         this.totalExpense = totalExpense;
+        this.transactionCount = transactionCount;
     }
 
-    public Integer getCategoryId() {
+    public Category() {}
+
+    public int getCategoryId() {
         return categoryId;
     }
 
-    public void setCategoryId(Integer categoryId) {
+    public void setCategoryId(int categoryId) {
         this.categoryId = categoryId;
     }
 
-    public Integer getUserId() {
+    public int getUserId() {
         return userId;
     }
 
-    public void setUserId(Integer userId) {
+    public void setUserId(int userId) {
         this.userId = userId;
     }
 
@@ -48,11 +57,22 @@ public class Category {
         this.description = description;
     }
 
-    public Double getTotalExpense() {
+    /**
+     * Total expense in cents; see {@link Money}.
+     */
+    public long getTotalExpense() {
         return totalExpense;
     }
 
-    public void setTotalExpense(Double totalExpense) {
+    public void setTotalExpense(long totalExpense) {
         this.totalExpense = totalExpense;
     }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public void setTransactionCount(int transactionCount) {
+        this.transactionCount = transactionCount;
+    }
 }
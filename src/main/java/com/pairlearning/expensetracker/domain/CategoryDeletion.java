@@ -0,0 +1,51 @@
+package com.pairlearning.expensetracker.domain;
+
+/**
+ * Progress of removing a category and its transactions. The category disappears as soon as the deletion starts;
+ * its transactions are then purged in batches until the job is {@link Status#DONE}, or {@link Status#FAILED} once
+ * its batches have failed too many times.
+ */
+public class CategoryDeletion {
+
+    public enum Status { PENDING, DONE, FAILED }
+
+    private int jobId;
+    private int userId;
+    private int categoryId;
+    private Status status;
+    private int transactionsTotal;
+    private int transactionsDeleted;
+
+    public CategoryDeletion(int jobId, int userId, int categoryId, Status status, int transactionsTotal, int transactionsDeleted) {
+        this.jobId = jobId;
+        this.userId = userId;
+        this.categoryId = categoryId;
+        this.status = status;
+        this.transactionsTotal = transactionsTotal;
+        this.transactionsDeleted = transactionsDeleted;
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public int getTransactionsTotal() {
+        return transactionsTotal;
+    }
+
+    public int getTransactionsDeleted() {
+        return transactionsDeleted;
+    }
+}
@@ -0,0 +1,45 @@
+package com.pairlearning.expensetracker.domain;
+
+public class CategoryTotalsDrift {
+
+    private int categoryId;
+    private int userId;
+    private long recordedTotalExpense;
+    private int recordedTransactionCount;
+    private long actualTotalExpense;
+    private int actualTransactionCount;
+
+    public CategoryTotalsDrift(int categoryId, int userId, long recordedTotalExpense, int recordedTransactionCount,
+                               long actualTotalExpense, int actualTransactionCount) {
+        this.categoryId = categoryId;
+        this.userId = userId;
+        this.recordedTotalExpense = recordedTotalExpense;
+        this.recordedTransactionCount = recordedTransactionCount;
+        this.actualTotalExpense = actualTotalExpense;
+        this.actualTransactionCount = actualTransactionCount;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public long getRecordedTotalExpense() {
+        return recordedTotalExpense;
+    }
+
+    public int getRecordedTransactionCount() {
+        return recordedTransactionCount;
+    }
+
+    public long getActualTotalExpense() {
+        return actualTotalExpense;
+    }
+
+    public int getActualTransactionCount() {
+        return actualTransactionCount;
+    }
+}
@@ -0,0 +1,46 @@
+package com.pairlearning.expensetracker.domain;
+
+/**
+ * What a create request keyed by {@code Idempotency-Key} answered, replayed verbatim to retries. Status 0 marks a
+ * key whose first request is still running.
+ */
+public class IdempotentResponse {
+
+    public static final int IN_FLIGHT = 0;
+
+    private final String fingerprint;
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+
+    public IdempotentResponse(String fingerprint, int status, String contentType, byte[] body) {
+        this.fingerprint = fingerprint;
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+    }
+
+    public static IdempotentResponse inFlight(String fingerprint) {
+        return new IdempotentResponse(fingerprint, IN_FLIGHT, null, null);
+    }
+
+    public boolean isComplete() {
+        return status != IN_FLIGHT;
+    }
+
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+}
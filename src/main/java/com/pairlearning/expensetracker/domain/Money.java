@@ -0,0 +1,87 @@
+package com.pairlearning.expensetracker.domain;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Money is held as a {@code long} number of cents everywhere in the application. The JSON API keeps its
+ * decimal amounts (e.g. {@code 12.34}); they are converted exactly, never through {@code double}.
+ */
+public final class Money {
+
+    private static final int SCALE = 2;
+
+    private Money() {}
+
+    public static long toCents(BigDecimal amount) throws ArithmeticException {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static long parseCents(String amount) throws NumberFormatException, ArithmeticException {
+        return toCents(new BigDecimal(amount.trim()));
+    }
+
+    /**
+     * Parses a request amount, rejecting anything that is not a number or does not fit
+     * {@link Constants#TRANSACTION_AMOUNT_LIMIT_CENTS}.
+     */
+    public static long parseAmount(String amount) throws EtBadRequestException {
+        long cents;
+        try {
+            cents = parseCents(amount);
+        }catch (NumberFormatException | ArithmeticException e) {
+            throw new EtBadRequestException("amount must be a number");
+        }
+        if(Math.abs(cents) >= Constants.TRANSACTION_AMOUNT_LIMIT_CENTS)
+            throw new EtBadRequestException("amount is out of range");
+        return cents;
+    }
+
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    public static class Serializer extends StdSerializer<Long> {
+
+        public Serializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long cents, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeNumber(toDecimal(cents));
+        }
+    }
+
+    public static class Deserializer extends StdDeserializer<Long> {
+
+        public Deserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            try {
+                if(token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT)
+                    return toCents(parser.getDecimalValue());
+                if(token == JsonToken.VALUE_STRING)
+                    return parseCents(parser.getText());
+            }catch (NumberFormatException | ArithmeticException e) {
+                return (Long) context.handleWeirdStringValue(Long.class, parser.getText(), "not a valid amount");
+            }
+            return (Long) context.handleUnexpectedToken(Long.class, parser);
+        }
+    }
+}
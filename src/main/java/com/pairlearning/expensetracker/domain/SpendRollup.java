@@ -0,0 +1,70 @@
+package com.pairlearning.expensetracker.domain;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+
+public class SpendRollup {
+
+    /**
+     * Buckets are keyed by their start in epoch millis, in UTC: the first day of the month, or the Monday of the
+     * week. Migration 004-spend-rollups backfills with the same boundaries.
+     */
+    public enum Granularity {
+        MONTH {
+            @Override
+            LocalDate bucketStart(LocalDate date) {
+                return date.withDayOfMonth(1);
+            }
+        },
+        WEEK {
+            @Override
+            LocalDate bucketStart(LocalDate date) {
+                return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            }
+        };
+
+        abstract LocalDate bucketStart(LocalDate date);
+
+        public long bucketOf(long epochMillis) {
+            LocalDate date = Instant.ofEpochMilli(epochMillis).atOffset(ZoneOffset.UTC).toLocalDate();
+            return bucketStart(date).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        }
+    }
+
+    private int categoryId;
+    private long bucket;
+    @JsonSerialize(using = Money.Serializer.class)
+    private long totalExpense;
+    private int transactionCount;
+
+    public SpendRollup(int categoryId, long bucket, long totalExpense, int transactionCount) {
+        this.categoryId = categoryId;
+        this.bucket = bucket;
+        this.totalExpense = totalExpense;
+        this.transactionCount = transactionCount;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public long getBucket() {
+        return bucket;
+    }
+
+    /**
+     * Total in cents; see {@link Money}.
+     */
+    public long getTotalExpense() {
+        return totalExpense;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+}
@@ -1,15 +1,20 @@
 package com.pairlearning.expensetracker.domain;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 public class Transaction {
 
-    private Integer transactionId;
-    private Integer categoryId;
-    private Integer userId;
-    private Double amount;
+    private int transactionId;
+    private int categoryId;
+    private int userId;
+    @JsonSerialize(using = Money.Serializer.class)
+    @JsonDeserialize(using = Money.Deserializer.class)
+    private long amount;
     private String note;
-    private Long transactionDate;
+    private long transactionDate;
 
-    public Transaction(Integer transactionId, Integer categoryId, Integer userId, Double amount, String note, Long transactionDate) {
+    public Transaction(int transactionId, int categoryId, int userId, long amount, String note, long transactionDate) {
         this.transactionId = transactionId;
         this.categoryId = categoryId;
         this.userId = userId;
@@ -18,35 +23,40 @@ public class Transaction {
         this.transactionDate = transactionDate;
     }
 
-    public Integer getTransactionId() {
+    public Transaction() {}
+
+    public int getTransactionId() {
         return transactionId;
     }
 
-    public void setTransactionId(Integer transactionId) {
+    public void setTransactionId(int transactionId) {
         this.transactionId = transactionId;
     }
 
-    public Integer getCategoryId() {
+    public int getCategoryId() {
         return categoryId;
     }
 
-    public void setCategoryId(Integer categoryId) {
+    public void setCategoryId(int categoryId) {
         this.categoryId = categoryId;
     }
 
-    public Integer getUserId() {
+    public int getUserId() {
         return userId;
     }
 
-    public void setUserId(Integer userId) {
+    public void setUserId(int userId) {
         this.userId = userId;
     }
 
-    public Double getAmount() {
+    /**
+     * Amount in cents; see {@link Money}.
+     */
+    public long getAmount() {
         return amount;
     }
 
-    public void setAmount(Double amount) {
+    public void setAmount(long amount) {
         this.amount = amount;
     }
 
@@ -58,11 +68,11 @@ public class Transaction {
         this.note = note;
     }
 
-    public Long getTransactionDate() {
+    public long getTransactionDate() {
         return transactionDate;
     }
 
-    public void setTransactionDate(Long transactionDate) {
+    public void setTransactionDate(long transactionDate) {
         this.transactionDate = transactionDate;
     }
 }
@@ -0,0 +1,76 @@
+package com.pairlearning.expensetracker.domain;
+
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+
+/**
+ * Optional bounds for a transaction listing: {@code from} is inclusive and {@code to} exclusive (epoch millis),
+ * amounts are inclusive and in cents. A {@code null} bound is unbounded.
+ */
+public class TransactionFilter {
+
+    public enum Sort {
+        DATE, DATE_DESC, AMOUNT, AMOUNT_DESC;
+
+        public static Sort parse(String sort) throws EtBadRequestException {
+            if(sort == null)
+                return null;
+            switch (sort) {
+                case "date":
+                    return DATE;
+                case "-date":
+                    return DATE_DESC;
+                case "amount":
+                    return AMOUNT;
+                case "-amount":
+                    return AMOUNT_DESC;
+                default:
+                    throw new EtBadRequestException("sort must be one of date, -date, amount, -amount");
+            }
+        }
+    }
+
+    private final Long from;
+    private final Long to;
+    private final Long minAmount;
+    private final Long maxAmount;
+    private final Sort sort;
+
+    public TransactionFilter(Long from, Long to, Long minAmount, Long maxAmount, Sort sort) {
+        this.from = from;
+        this.to = to;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        this.sort = sort;
+    }
+
+    public Long getFrom() {
+        return from;
+    }
+
+    public Long getTo() {
+        return to;
+    }
+
+    public Long getMinAmount() {
+        return minAmount;
+    }
+
+    public Long getMaxAmount() {
+        return maxAmount;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public void validate() throws EtBadRequestException {
+        if(from != null && to != null && from >= to)
+            throw new EtBadRequestException("from must be before to");
+        if(minAmount != null && maxAmount != null && minAmount > maxAmount)
+            throw new EtBadRequestException("minAmount must not exceed maxAmount");
+    }
+
+    public boolean isEmpty() {
+        return from == null && to == null && minAmount == null && maxAmount == null && sort == null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.pairlearning.expensetracker.domain;
+
+public class TransactionImportOutcome {
+
+    public static final String CREATED = "CREATED";
+    public static final String REJECTED = "REJECTED";
+    // Valid, but not committed because the import stopped before its chunk was
+    public static final String FAILED = "FAILED";
+
+    private Integer index;
+    private String status;
+    private Integer transactionId;
+    private String error;
+
+    public TransactionImportOutcome(Integer index, String status, Integer transactionId, String error) {
+        this.index = index;
+        this.status = status;
+        this.transactionId = transactionId;
+        this.error = error;
+    }
+
+    public Integer getIndex() {
+        return index;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public Integer getTransactionId() {
+        return transactionId;
+    }
+
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,52 @@
+package com.pairlearning.expensetracker.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TransactionImportResult {
+
+    private int created;
+    private int rejected;
+    private int failed;
+    private String error;
+    private List<TransactionImportOutcome> rows = new ArrayList<>();
+
+    public void addCreated(int index, Integer transactionId) {
+        rows.add(new TransactionImportOutcome(index, TransactionImportOutcome.CREATED, transactionId, null));
+        created++;
+    }
+
+    public void addRejected(int index, String error) {
+        rows.add(new TransactionImportOutcome(index, TransactionImportOutcome.REJECTED, null, error));
+        rejected++;
+    }
+
+    public void addFailed(int index, String error) {
+        rows.add(new TransactionImportOutcome(index, TransactionImportOutcome.FAILED, null, error));
+        failed++;
+    }
+
+    public int getCreated() {
+        return created;
+    }
+
+    public int getRejected() {
+        return rejected;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public List<TransactionImportOutcome> getRows() {
+        return rows;
+    }
+}
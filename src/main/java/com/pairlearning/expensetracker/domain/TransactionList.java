@@ -0,0 +1,165 @@
+package com.pairlearning.expensetracker.domain;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Column-oriented list of transactions for large listings. Each row costs its primitive fields plus the note,
+ * instead of a {@link Transaction} and its boxes; rows are serialized straight from the columns and only
+ * materialized as {@link Transaction} objects when read through {@link #get(int)}.
+ */
+@JsonSerialize(using = TransactionList.Serializer.class)
+public class TransactionList extends AbstractList<Transaction> implements RandomAccess {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int size;
+    private int[] transactionIds;
+    private int[] categoryIds;
+    private int[] userIds;
+    private long[] amounts;
+    private String[] notes;
+    private long[] transactionDates;
+
+    public TransactionList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TransactionList(int capacity) {
+        transactionIds = new int[capacity];
+        categoryIds = new int[capacity];
+        userIds = new int[capacity];
+        amounts = new long[capacity];
+        notes = new String[capacity];
+        transactionDates = new long[capacity];
+    }
+
+    public void add(int transactionId, int categoryId, int userId, long amount, String note, long transactionDate) {
+        if(size == transactionIds.length)
+            grow();
+        transactionIds[size] = transactionId;
+        categoryIds[size] = categoryId;
+        userIds[size] = userId;
+        amounts[size] = amount;
+        notes[size] = note;
+        transactionDates[size] = transactionDate;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean add(Transaction transaction) {
+        add(transaction.getTransactionId(), transaction.getCategoryId(), transaction.getUserId(),
+                transaction.getAmount(), transaction.getNote(), transaction.getTransactionDate());
+        return true;
+    }
+
+    @Override
+    public Transaction get(int index) {
+        checkIndex(index);
+        return new Transaction(transactionIds[index], categoryIds[index], userIds[index],
+                amounts[index], notes[index], transactionDates[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The same rows serialized as one array per field instead of one object per row.
+     */
+    public Columns columns() {
+        return new Columns(this);
+    }
+
+    private void grow() {
+        int capacity = Math.max(DEFAULT_CAPACITY, transactionIds.length + (transactionIds.length >> 1));
+        transactionIds = Arrays.copyOf(transactionIds, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        userIds = Arrays.copyOf(userIds, capacity);
+        amounts = Arrays.copyOf(amounts, capacity);
+        notes = Arrays.copyOf(notes, capacity);
+        transactionDates = Arrays.copyOf(transactionDates, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    public static class Serializer extends StdSerializer<TransactionList> {
+
+        public Serializer() {
+            super(TransactionList.class);
+        }
+
+        @Override
+        public void serialize(TransactionList transactions, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartArray();
+            for(int i = 0; i < transactions.size; i++)
+                writeRow(transactions, i, generator);
+            generator.writeEndArray();
+        }
+
+        // Same properties, in the same order, as Jackson's bean serialization of Transaction
+        private static void writeRow(TransactionList transactions, int i, JsonGenerator generator) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("transactionId", transactions.transactionIds[i]);
+            generator.writeNumberField("categoryId", transactions.categoryIds[i]);
+            generator.writeNumberField("userId", transactions.userIds[i]);
+            generator.writeNumberField("amount", Money.toDecimal(transactions.amounts[i]));
+            generator.writeStringField("note", transactions.notes[i]);
+            generator.writeNumberField("transactionDate", transactions.transactionDates[i]);
+            generator.writeEndObject();
+        }
+    }
+
+    @JsonSerialize(using = ColumnsSerializer.class)
+    public static class Columns {
+
+        private final TransactionList transactions;
+
+        private Columns(TransactionList transactions) {
+            this.transactions = transactions;
+        }
+    }
+
+    public static class ColumnsSerializer extends StdSerializer<Columns> {
+
+        public ColumnsSerializer() {
+            super(Columns.class);
+        }
+
+        @Override
+        public void serialize(Columns columns, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            TransactionList transactions = columns.transactions;
+            int size = transactions.size;
+            generator.writeStartObject();
+            generator.writeFieldName("transactionId");
+            generator.writeArray(transactions.transactionIds, 0, size);
+            generator.writeFieldName("categoryId");
+            generator.writeArray(transactions.categoryIds, 0, size);
+            generator.writeFieldName("userId");
+            generator.writeArray(transactions.userIds, 0, size);
+            generator.writeArrayFieldStart("amount");
+            for(int i = 0; i < size; i++)
+                generator.writeNumber(Money.toDecimal(transactions.amounts[i]));
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("note");
+            for(int i = 0; i < size; i++)
+                generator.writeString(transactions.notes[i]);
+            generator.writeEndArray();
+            generator.writeFieldName("transactionDate");
+            generator.writeArray(transactions.transactionDates, 0, size);
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.pairlearning.expensetracker.domain;
+
+import java.util.List;
+
+public class TransactionPage {
+
+    private List<Transaction> transactions;
+    private String next;
+
+    public TransactionPage(List<Transaction> transactions, String next) {
+        this.transactions = transactions;
+        this.next = next;
+    }
+
+    public List<Transaction> getTransactions() {
+        return transactions;
+    }
+
+    public void setTransactions(List<Transaction> transactions) {
+        this.transactions = transactions;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+}
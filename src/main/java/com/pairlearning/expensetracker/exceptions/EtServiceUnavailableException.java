@@ -0,0 +1,12 @@
+package com.pairlearning.expensetracker.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class EtServiceUnavailableException extends RuntimeException {
+
+    public EtServiceUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.pairlearning.expensetracker.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class EtTooManyRequestsException extends RuntimeException {
+
+    public EtTooManyRequestsException(String message) {
+        super(message);
+    }
+}
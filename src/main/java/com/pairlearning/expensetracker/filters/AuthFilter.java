@@ -1,8 +1,12 @@
 package com.pairlearning.expensetracker.filters;
 
 import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.exceptions.EtAuthException;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.filter.GenericFilterBean;
 
@@ -15,32 +19,69 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 public class AuthFilter extends GenericFilterBean {
+
+    private final TokenCache tokenCache;
+    private final Counter missingTokenCounter;
+    private final Counter malformedTokenCounter;
+    private final Counter invalidTokenCounter;
+
+    public AuthFilter() {
+        this(null);
+    }
+
+    public AuthFilter(TokenCache tokenCache) {
+        this(tokenCache, Metrics.globalRegistry);
+    }
+
+    public AuthFilter(TokenCache tokenCache, MeterRegistry meterRegistry) {
+        this.tokenCache = tokenCache;
+        this.missingTokenCounter = rejectedCounter(meterRegistry, "missing");
+        this.malformedTokenCounter = rejectedCounter(meterRegistry, "malformed");
+        this.invalidTokenCounter = rejectedCounter(meterRegistry, "invalid");
+    }
+
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
         HttpServletRequest httpRequest = (HttpServletRequest) servletRequest;
         HttpServletResponse httpResponse = (HttpServletResponse) servletResponse;
 
-        String authHeader = httpRequest.getHeader("Authorization");
-        if(authHeader != null) {
-            String[] authHeaderArr = authHeader.split("Bearer ");
-            if(authHeaderArr.length > 1 && authHeaderArr[1] != null) {
-                String token = authHeaderArr[1];
-                try {
-                    Claims claims = Jwts.parser().setSigningKey(Constants.API_SECRET_KEY)
-                            .parseClaimsJws(token).getBody();
-                    httpRequest.setAttribute("userId", Integer.parseInt(claims.get("userId").toString()));
-                }catch (Exception e) {
-                    httpResponse.sendError(HttpStatus.FORBIDDEN.value(), "invalid/expired token");
-                    return;
-                }
-            } else {
-                httpResponse.sendError(HttpStatus.FORBIDDEN.value(), "Authorization token must be Bearer [token]");
-                return;
-            }
-        } else {
-            httpResponse.sendError(HttpStatus.FORBIDDEN.value(), "Authorization token must be provided");
+        try {
+            httpRequest.setAttribute("userId", authenticate(httpRequest.getHeader("Authorization")));
+        }catch (EtAuthException e) {
+            httpResponse.sendError(HttpStatus.FORBIDDEN.value(), e.getMessage());
             return;
         }
         filterChain.doFilter(servletRequest, servletResponse);
     }
+
+    Integer authenticate(String authHeader) throws EtAuthException {
+        if(authHeader == null) {
+            missingTokenCounter.increment();
+            throw new EtAuthException("Authorization token must be provided");
+        }
+        String[] authHeaderArr = authHeader.split("Bearer ");
+        if(authHeaderArr.length <= 1 || authHeaderArr[1] == null) {
+            malformedTokenCounter.increment();
+            throw new EtAuthException("Authorization token must be Bearer [token]");
+        }
+        String token = authHeaderArr[1];
+        Integer userId = tokenCache != null ? tokenCache.getUserId(token) : null;
+        if(userId == null) {
+            try {
+                Claims claims = Jwts.parser().setSigningKey(Constants.API_SECRET_KEY)
+                        .parseClaimsJws(token).getBody();
+                userId = Integer.parseInt(claims.get("userId").toString());
+                if(tokenCache != null)
+                    tokenCache.put(token, userId, claims.getExpiration());
+            }catch (Exception e) {
+                invalidTokenCounter.increment();
+                throw new EtAuthException("invalid/expired token");
+            }
+        }
+        return userId;
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("et.auth.rejected").tag("reason", reason).register(meterRegistry);
+    }
 }
@@ -0,0 +1,98 @@
+package com.pairlearning.expensetracker.filters;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.GenericFilterBean;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lets at most {@code maxConcurrency} requests past at once; the rest wait in arrival order for up to
+ * {@code acquireTimeoutMs} and are then answered 503. With a thread per request the thread pool is the limit;
+ * with virtual threads nothing else is, so this is sized to the connection pool every request draws on. An async
+ * request (streamed listings, login and registration) keeps its permit until the async work completes.
+ */
+public class ConcurrencyLimitFilter extends GenericFilterBean {
+
+    private final Semaphore permits;
+    private final long acquireTimeoutMs;
+    private final Counter rejectedCounter;
+
+    public ConcurrencyLimitFilter(int maxConcurrency, long acquireTimeoutMs, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrency, true);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.rejectedCounter = Counter.builder("et.requests.rejected").register(meterRegistry);
+        Gauge.builder("et.requests.waiting", permits, Semaphore::getQueueLength).register(meterRegistry);
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        }catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if(!acquired) {
+            rejectedCounter.increment();
+            ((HttpServletResponse) servletResponse).sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server is busy, please retry");
+            return;
+        }
+        boolean async = false;
+        try {
+            filterChain.doFilter(servletRequest, servletResponse);
+            if(servletRequest.isAsyncStarted()) {
+                servletRequest.getAsyncContext().addListener(new PermitReleasingListener());
+                async = true;
+            }
+        } finally {
+            if(!async)
+                permits.release();
+        }
+    }
+
+    // An error or timeout is followed by completion, so the permit must only be given back once
+    private class PermitReleasingListener implements AsyncListener {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Listeners are dropped when async restarts on the same request
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if(released.compareAndSet(false, true))
+                permits.release();
+        }
+    }
+}
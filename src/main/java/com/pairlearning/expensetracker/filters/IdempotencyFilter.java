@@ -0,0 +1,168 @@
+package com.pairlearning.expensetracker.filters;
+
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.domain.IdempotentResponse;
+import com.pairlearning.expensetracker.repositories.IdempotencyStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.filter.GenericFilterBean;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+/**
+ * Makes category and transaction creation safe to retry. The first request carrying an {@code Idempotency-Key}
+ * runs as usual and its successful response is stored; a retry with the same key and body gets that response back
+ * without reaching the write path. Keys are scoped to the user and the endpoint. Runs after {@link AuthFilter}.
+ */
+public class IdempotencyFilter extends GenericFilterBean {
+
+    private static final Pattern CREATE_PATH = Pattern.compile("/api/categories(/\\d+/transactions)?/?");
+
+    private final IdempotencyStore idempotencyStore;
+    private final Counter replayedCounter;
+    private final Counter conflictCounter;
+
+    public IdempotencyFilter(IdempotencyStore idempotencyStore, MeterRegistry meterRegistry) {
+        this.idempotencyStore = idempotencyStore;
+        this.replayedCounter = outcomeCounter(meterRegistry, "replayed");
+        this.conflictCounter = outcomeCounter(meterRegistry, "conflict");
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) servletRequest;
+        HttpServletResponse httpResponse = (HttpServletResponse) servletResponse;
+        String idempotencyKey = httpRequest.getHeader(Constants.IDEMPOTENCY_KEY_HEADER);
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
+        if(idempotencyKey == null || !"POST".equals(httpRequest.getMethod()) || !CREATE_PATH.matcher(path).matches()) {
+            filterChain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+        if(idempotencyKey.isEmpty() || idempotencyKey.length() > Constants.IDEMPOTENCY_KEY_MAX_LENGTH) {
+            httpResponse.sendError(HttpStatus.BAD_REQUEST.value(),
+                    Constants.IDEMPOTENCY_KEY_HEADER + " must be 1 to " + Constants.IDEMPOTENCY_KEY_MAX_LENGTH + " characters");
+            return;
+        }
+
+        byte[] body = StreamUtils.copyToByteArray(httpRequest.getInputStream());
+        String key = httpRequest.getAttribute("userId") + ":" + path + ":" + idempotencyKey;
+        String fingerprint = fingerprint(body);
+        IdempotentResponse existing = idempotencyStore.reserve(key, fingerprint);
+        if(existing != null) {
+            if(!existing.getFingerprint().equals(fingerprint)) {
+                conflictCounter.increment();
+                httpResponse.sendError(HttpStatus.UNPROCESSABLE_ENTITY.value(),
+                        Constants.IDEMPOTENCY_KEY_HEADER + " was already used with a different request body");
+            }else if(!existing.isComplete()) {
+                conflictCounter.increment();
+                httpResponse.sendError(HttpStatus.CONFLICT.value(),
+                        "A request with this " + Constants.IDEMPOTENCY_KEY_HEADER + " is still in progress");
+            }else {
+                replayedCounter.increment();
+                replay(existing, httpResponse);
+            }
+            return;
+        }
+
+        ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(httpResponse);
+        boolean completed = false;
+        try {
+            filterChain.doFilter(new CachedBodyRequest(httpRequest, body), responseWrapper);
+            // Failures are not stored, so the client can fix the request and retry under the same key
+            if(responseWrapper.getStatus() >= 200 && responseWrapper.getStatus() < 300) {
+                idempotencyStore.complete(key, new IdempotentResponse(fingerprint, responseWrapper.getStatus(),
+                        responseWrapper.getContentType(), responseWrapper.getContentAsByteArray()));
+                completed = true;
+            }
+        } finally {
+            if(!completed)
+                idempotencyStore.release(key);
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+
+    private static void replay(IdempotentResponse response, HttpServletResponse httpResponse) throws IOException {
+        httpResponse.setStatus(response.getStatus());
+        httpResponse.setHeader("Idempotent-Replayed", "true");
+        if(response.getContentType() != null)
+            httpResponse.setContentType(response.getContentType());
+        if(response.getBody() != null) {
+            httpResponse.setContentLength(response.getBody().length);
+            httpResponse.getOutputStream().write(response.getBody());
+        }
+    }
+
+    private static String fingerprint(byte[] body) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(body));
+        }catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("et.idempotency.requests")
+                .description("Create requests answered from the idempotency store instead of the write path")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    // The body was read to fingerprint it; hand the same bytes to the controller
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream inputStream = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return inputStream.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return inputStream.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return inputStream.read(b, off, len);
+                }
+            };
+        }
+    }
+}
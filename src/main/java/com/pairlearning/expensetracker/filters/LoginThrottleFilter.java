@@ -0,0 +1,34 @@
+package com.pairlearning.expensetracker.filters;
+
+import com.pairlearning.expensetracker.services.LoginThrottle;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.GenericFilterBean;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Per-client-address half of the login throttle; the per-email half runs in the user service once the body is
+ * parsed. Keyed by the connection's remote address, so behind a proxy it needs forwarded headers applied first.
+ */
+public class LoginThrottleFilter extends GenericFilterBean {
+
+    private final LoginThrottle addressThrottle;
+
+    public LoginThrottleFilter(LoginThrottle addressThrottle) {
+        this.addressThrottle = addressThrottle;
+    }
+
+    @Override
+    public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
+        if(!addressThrottle.tryAcquire(servletRequest.getRemoteAddr())) {
+            ((HttpServletResponse) servletResponse).sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many attempts, please retry later");
+            return;
+        }
+        filterChain.doFilter(servletRequest, servletResponse);
+    }
+}
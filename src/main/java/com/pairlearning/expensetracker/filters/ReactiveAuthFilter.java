@@ -0,0 +1,41 @@
+package com.pairlearning.expensetracker.filters;
+
+import com.pairlearning.expensetracker.exceptions.EtAuthException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link AuthFilter} for the reactive stack: same token checks and rejection counters, with the user id stored as
+ * the {@code userId} exchange attribute.
+ */
+public class ReactiveAuthFilter implements WebFilter {
+
+    private final AuthFilter authFilter;
+    private final String[] pathPrefixes;
+
+    public ReactiveAuthFilter(AuthFilter authFilter, String... pathPrefixes) {
+        this.authFilter = authFilter;
+        this.pathPrefixes = pathPrefixes;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        boolean protectedPath = false;
+        for(String pathPrefix : pathPrefixes)
+            protectedPath |= path.startsWith(pathPrefix);
+        if(!protectedPath)
+            return chain.filter(exchange);
+        try {
+            exchange.getAttributes().put("userId", authFilter.authenticate(exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION)));
+        }catch (EtAuthException e) {
+            return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, e.getMessage()));
+        }
+        return chain.filter(exchange);
+    }
+}
@@ -0,0 +1,36 @@
+package com.pairlearning.expensetracker.filters;
+
+import com.pairlearning.expensetracker.services.LoginThrottle;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * {@link LoginThrottleFilter} for the reactive stack.
+ */
+public class ReactiveLoginThrottleFilter implements WebFilter {
+
+    private final LoginThrottle addressThrottle;
+    private final String pathPrefix;
+
+    public ReactiveLoginThrottleFilter(LoginThrottle addressThrottle, String pathPrefix) {
+        this.addressThrottle = addressThrottle;
+        this.pathPrefix = pathPrefix;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if(!exchange.getRequest().getPath().pathWithinApplication().value().startsWith(pathPrefix))
+            return chain.filter(exchange);
+        InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+        String address = remoteAddress != null ? remoteAddress.getHostString() : "unknown";
+        if(!addressThrottle.tryAcquire(address))
+            return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many attempts, please retry later"));
+        return chain.filter(exchange);
+    }
+}
@@ -0,0 +1,24 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.domain.CategoryDeletion;
+import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
+
+public interface CategoryDeletionRepository {
+
+    CategoryDeletion create(Integer userId, Integer categoryId) throws EtResourceNotFoundException;
+
+    CategoryDeletion findById(Integer userId, Integer jobId) throws EtResourceNotFoundException;
+
+    CategoryDeletion lockPending(Integer jobId);
+
+    CategoryDeletion claimPending();
+
+    int deleteTransactions(Integer categoryId, int limit);
+
+    void recordProgress(Integer jobId, int transactionsDeleted);
+
+    void finish(CategoryDeletion deletion);
+
+    CategoryDeletion.Status recordFailure(Integer jobId, long retryDelayMillis, int maxAttempts);
+
+}
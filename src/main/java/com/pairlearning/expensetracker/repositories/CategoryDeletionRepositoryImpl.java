@@ -0,0 +1,117 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.domain.CategoryDeletion;
+import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class CategoryDeletionRepositoryImpl implements CategoryDeletionRepository {
+
+    // The primary-key update doubles as the existence and ownership check
+    private static final String SQL_SOFT_DELETE_CATEGORY = "UPDATE ET_CATEGORIES SET DELETED = TRUE WHERE USER_ID = ? AND CATEGORY_ID = ? AND NOT DELETED " +
+            "RETURNING TRANSACTION_COUNT";
+    private static final String SQL_DELETE_SPEND_ROLLUPS = "DELETE FROM ET_SPEND_ROLLUPS WHERE USER_ID = ? AND CATEGORY_ID = ?";
+    private static final String SQL_CREATE = "INSERT INTO ET_CATEGORY_DELETIONS (JOB_ID, USER_ID, CATEGORY_ID, STATUS, TRANSACTIONS_TOTAL, CREATED_AT, UPDATED_AT) " +
+            "VALUES(NEXTVAL('ET_CATEGORY_DELETIONS_SEQ'), ?, ?, 'PENDING', ?, ?, ?) " +
+            "RETURNING JOB_ID, USER_ID, CATEGORY_ID, STATUS, TRANSACTIONS_TOTAL, TRANSACTIONS_DELETED";
+    private static final String SQL_FIND_BY_ID = "SELECT JOB_ID, USER_ID, CATEGORY_ID, STATUS, TRANSACTIONS_TOTAL, TRANSACTIONS_DELETED " +
+            "FROM ET_CATEGORY_DELETIONS WHERE USER_ID = ? AND JOB_ID = ?";
+    private static final String SQL_LOCK_PENDING = "SELECT JOB_ID, USER_ID, CATEGORY_ID, STATUS, TRANSACTIONS_TOTAL, TRANSACTIONS_DELETED " +
+            "FROM ET_CATEGORY_DELETIONS WHERE JOB_ID = ? AND STATUS = 'PENDING' FOR UPDATE";
+    // Jobs another node or request is purging right now are skipped, not waited for, and so are jobs backing off
+    private static final String SQL_CLAIM_PENDING = "SELECT JOB_ID, USER_ID, CATEGORY_ID, STATUS, TRANSACTIONS_TOTAL, TRANSACTIONS_DELETED " +
+            "FROM ET_CATEGORY_DELETIONS WHERE STATUS = 'PENDING' AND NEXT_ATTEMPT_AT <= ? ORDER BY NEXT_ATTEMPT_AT, JOB_ID LIMIT 1 FOR UPDATE SKIP LOCKED";
+    private static final String SQL_DELETE_TRANSACTIONS = "DELETE FROM ET_TRANSACTIONS WHERE TRANSACTION_ID IN " +
+            "(SELECT TRANSACTION_ID FROM ET_TRANSACTIONS WHERE CATEGORY_ID = ? LIMIT ?)";
+    private static final String SQL_RECORD_PROGRESS = "UPDATE ET_CATEGORY_DELETIONS SET TRANSACTIONS_DELETED = TRANSACTIONS_DELETED + ?, UPDATED_AT = ? " +
+            "WHERE JOB_ID = ?";
+    private static final String SQL_DELETE_CATEGORY = "DELETE FROM ET_CATEGORIES WHERE CATEGORY_ID = ? AND DELETED";
+    private static final String SQL_FINISH = "UPDATE ET_CATEGORY_DELETIONS SET STATUS = 'DONE', UPDATED_AT = ? WHERE JOB_ID = ?";
+    // The delay doubles with each failed attempt, up to 64 times the first
+    private static final String SQL_RECORD_FAILURE = "UPDATE ET_CATEGORY_DELETIONS SET ATTEMPTS = ATTEMPTS + 1, " +
+            "NEXT_ATTEMPT_AT = ? + ? * CAST(POWER(2, LEAST(ATTEMPTS, 6)) AS BIGINT), " +
+            "STATUS = CASE WHEN ATTEMPTS + 1 >= ? THEN 'FAILED' ELSE STATUS END, UPDATED_AT = ? " +
+            "WHERE JOB_ID = ? AND STATUS = 'PENDING' RETURNING STATUS";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    DataVersionRepository dataVersionRepository;
+
+    @Override
+    public CategoryDeletion create(Integer userId, Integer categoryId) throws EtResourceNotFoundException {
+        List<Integer> transactionCounts = jdbcTemplate.queryForList(SQL_SOFT_DELETE_CATEGORY, new Object[]{userId, categoryId}, Integer.class);
+        if(transactionCounts.isEmpty())
+            throw new EtResourceNotFoundException("Category not found");
+        // Reports stop counting the category at once rather than as its transactions are purged
+        jdbcTemplate.update(SQL_DELETE_SPEND_ROLLUPS, new Object[]{userId, categoryId});
+        dataVersionRepository.bump(userId);
+        long now = System.currentTimeMillis();
+        return jdbcTemplate.queryForObject(SQL_CREATE, new Object[]{userId, categoryId, transactionCounts.get(0), now, now}, categoryDeletionRowMapper);
+    }
+
+    @Override
+    public CategoryDeletion findById(Integer userId, Integer jobId) throws EtResourceNotFoundException {
+        try {
+            return jdbcTemplate.queryForObject(SQL_FIND_BY_ID, new Object[]{userId, jobId}, categoryDeletionRowMapper);
+        }catch (Exception e) {
+            throw new EtResourceNotFoundException("Category deletion not found");
+        }
+    }
+
+    @Override
+    public CategoryDeletion lockPending(Integer jobId) {
+        List<CategoryDeletion> deletions = jdbcTemplate.query(SQL_LOCK_PENDING, new Object[]{jobId}, categoryDeletionRowMapper);
+        return deletions.isEmpty() ? null : deletions.get(0);
+    }
+
+    @Override
+    public CategoryDeletion claimPending() {
+        List<CategoryDeletion> deletions = jdbcTemplate.query(SQL_CLAIM_PENDING, new Object[]{System.currentTimeMillis()}, categoryDeletionRowMapper);
+        return deletions.isEmpty() ? null : deletions.get(0);
+    }
+
+    @Override
+    public int deleteTransactions(Integer categoryId, int limit) {
+        int deleted = jdbcTemplate.update(SQL_DELETE_TRANSACTIONS, new Object[]{categoryId, limit});
+        // Purged transactions were still listed under the deleted category until now
+        if(deleted > 0)
+            dataVersionRepository.bumpForCategory(categoryId);
+        return deleted;
+    }
+
+    @Override
+    public void recordProgress(Integer jobId, int transactionsDeleted) {
+        jdbcTemplate.update(SQL_RECORD_PROGRESS, new Object[]{transactionsDeleted, System.currentTimeMillis(), jobId});
+    }
+
+    @Override
+    public void finish(CategoryDeletion deletion) {
+        jdbcTemplate.update(SQL_DELETE_CATEGORY, new Object[]{deletion.getCategoryId()});
+        jdbcTemplate.update(SQL_FINISH, new Object[]{System.currentTimeMillis(), deletion.getJobId()});
+    }
+
+    @Override
+    public CategoryDeletion.Status recordFailure(Integer jobId, long retryDelayMillis, int maxAttempts) {
+        long now = System.currentTimeMillis();
+        List<String> statuses = jdbcTemplate.queryForList(SQL_RECORD_FAILURE,
+                new Object[]{now, retryDelayMillis, maxAttempts, now, jobId}, String.class);
+        // Finished or given up on by another worker in the meantime
+        return statuses.isEmpty() ? null : CategoryDeletion.Status.valueOf(statuses.get(0));
+    }
+
+    private RowMapper<CategoryDeletion> categoryDeletionRowMapper = ((rs, rowNum) -> {
+        return new CategoryDeletion(rs.getInt("JOB_ID"),
+                rs.getInt("USER_ID"),
+                rs.getInt("CATEGORY_ID"),
+                CategoryDeletion.Status.valueOf(rs.getString("STATUS")),
+                rs.getInt("TRANSACTIONS_TOTAL"),
+                rs.getInt("TRANSACTIONS_DELETED"));
+    });
+}
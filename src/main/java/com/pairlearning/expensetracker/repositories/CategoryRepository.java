@@ -1,21 +1,29 @@
 package com.pairlearning.expensetracker.repositories;
 
 import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.domain.CategoryTotalsDrift;
 import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
 import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface CategoryRepository {
 
     List<Category> findAll(Integer userId) throws EtResourceNotFoundException;
 
+    void streamAll(Integer userId, Consumer<Category> consumer);
+
     Category findById(Integer userId, Integer categoryId) throws EtResourceNotFoundException;
 
-    Integer create(Integer userId, String title, String description) throws EtBadRequestException;
+    Category create(Integer userId, String title, String description) throws EtBadRequestException;
 
     void update(Integer userId, Integer categoryId, Category category) throws EtBadRequestException;
 
-    void removeById(Integer userId, Integer categoryId);
+    List<CategoryTotalsDrift> findTotalsDrift();
+
+    CategoryTotalsDrift reconcileTotals(Integer categoryId);
+
+    void publishChange(Integer userId);
 
 }
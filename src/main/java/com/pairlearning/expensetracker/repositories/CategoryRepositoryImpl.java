@@ -1,44 +1,68 @@
 package com.pairlearning.expensetracker.repositories;
 
+import com.pairlearning.expensetracker.Constants;
 import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.domain.CategoryTotalsDrift;
+import com.pairlearning.expensetracker.domain.Money;
 import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
 import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
-import java.sql.PreparedStatement;
-import java.sql.Statement;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Repository
 public class CategoryRepositoryImpl implements CategoryRepository {
 
-    private static final String SQL_FIND_ALL = "SELECT C.CATEGORY_ID, C.USER_ID, C.TITLE, C.DESCRIPTION, " +
-            "COALESCE(SUM(T.AMOUNT), 0) TOTAL_EXPENSE " +
-            "FROM ET_TRANSACTIONS T RIGHT OUTER JOIN ET_CATEGORIES C ON C.CATEGORY_ID = T.CATEGORY_ID " +
-            "WHERE C.USER_ID = ? GROUP BY C.CATEGORY_ID";
-    private static final String SQL_FIND_BY_ID = "SELECT C.CATEGORY_ID, C.USER_ID, C.TITLE, C.DESCRIPTION, " +
-            "COALESCE(SUM(T.AMOUNT), 0) TOTAL_EXPENSE " +
-            "FROM ET_TRANSACTIONS T RIGHT OUTER JOIN ET_CATEGORIES C ON C.CATEGORY_ID = T.CATEGORY_ID " +
-            "WHERE C.USER_ID = ? AND C.CATEGORY_ID = ? GROUP BY C.CATEGORY_ID";
-    private static final String SQL_CREATE = "INSERT INTO ET_CATEGORIES (CATEGORY_ID, USER_ID, TITLE, DESCRIPTION) VALUES(NEXTVAL('ET_CATEGORIES_SEQ'), ?, ?, ?)";
+    private static final String SQL_FIND_ALL = "SELECT CATEGORY_ID, USER_ID, TITLE, DESCRIPTION, CAST(TOTAL_EXPENSE * 100 AS BIGINT) TOTAL_EXPENSE_CENTS, TRANSACTION_COUNT " +
+            "FROM ET_CATEGORIES WHERE USER_ID = ? AND NOT DELETED";
+    private static final String SQL_FIND_BY_ID = "SELECT CATEGORY_ID, USER_ID, TITLE, DESCRIPTION, CAST(TOTAL_EXPENSE * 100 AS BIGINT) TOTAL_EXPENSE_CENTS, TRANSACTION_COUNT " +
+            "FROM ET_CATEGORIES WHERE USER_ID = ? AND CATEGORY_ID = ? AND NOT DELETED";
+    private static final String SQL_CREATE = "INSERT INTO ET_CATEGORIES (CATEGORY_ID, USER_ID, TITLE, DESCRIPTION) VALUES(?, ?, ?, ?) " +
+            "RETURNING CATEGORY_ID, USER_ID, TITLE, DESCRIPTION, CAST(TOTAL_EXPENSE * 100 AS BIGINT) TOTAL_EXPENSE_CENTS, TRANSACTION_COUNT";
     private static final String SQL_UPDATE = "UPDATE ET_CATEGORIES SET TITLE = ?, DESCRIPTION = ? " +
-            "WHERE USER_ID = ? AND CATEGORY_ID = ?";
-    private static final String SQL_DELETE_CATEGORY = "DELETE FROM ET_CATEGORIES WHERE USER_ID = ? AND CATEGORY_ID = ?";
-    private static final String SQL_DELETE_ALL_TRANSACTIONS = "DELETE FROM ET_TRANSACTIONS WHERE CATEGORY_ID = ?";
+            "WHERE USER_ID = ? AND CATEGORY_ID = ? AND NOT DELETED";
+    private static final String SQL_FIND_TOTALS_DRIFT = "SELECT C.CATEGORY_ID, C.USER_ID, CAST(C.TOTAL_EXPENSE * 100 AS BIGINT) TOTAL_EXPENSE_CENTS, C.TRANSACTION_COUNT, " +
+            "CAST(COALESCE(SUM(T.AMOUNT), 0) * 100 AS BIGINT) ACTUAL_TOTAL_EXPENSE_CENTS, COUNT(T.TRANSACTION_ID) ACTUAL_TRANSACTION_COUNT " +
+            "FROM ET_CATEGORIES C LEFT OUTER JOIN ET_TRANSACTIONS T ON T.CATEGORY_ID = C.CATEGORY_ID WHERE NOT C.DELETED GROUP BY C.CATEGORY_ID " +
+            "HAVING C.TOTAL_EXPENSE <> COALESCE(SUM(T.AMOUNT), 0) OR C.TRANSACTION_COUNT <> COUNT(T.TRANSACTION_ID)";
+    // Every transaction write moves the totals under this row's lock, so once it is held the sums below are settled
+    private static final String SQL_LOCK_TOTALS = "SELECT USER_ID, CAST(TOTAL_EXPENSE * 100 AS BIGINT) TOTAL_EXPENSE_CENTS, TRANSACTION_COUNT " +
+            "FROM ET_CATEGORIES WHERE CATEGORY_ID = ? AND NOT DELETED FOR UPDATE";
+    private static final String SQL_FIND_ACTUAL_TOTALS = "SELECT CAST(COALESCE(SUM(AMOUNT), 0) * 100 AS BIGINT) TOTAL_EXPENSE_CENTS, COUNT(*) TRANSACTION_COUNT " +
+            "FROM ET_TRANSACTIONS WHERE CATEGORY_ID = ?";
+    private static final String SQL_SET_TOTALS = "UPDATE ET_CATEGORIES SET TOTAL_EXPENSE = ?, TRANSACTION_COUNT = ? WHERE CATEGORY_ID = ?";
+    private static final String SQL_NOTIFY_CHANGE = "SELECT PG_NOTIFY('" + Constants.CATEGORY_CHANGES_CHANNEL + "', ?)";
+
+    private static final String ID_SEQUENCE = "ET_CATEGORIES_SEQ";
 
     @Autowired
     JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    SequenceIdAllocator idAllocator;
+
+    @Autowired
+    DataVersionRepository dataVersionRepository;
+
     @Override
     public List<Category> findAll(Integer userId) throws EtResourceNotFoundException {
         return jdbcTemplate.query(SQL_FIND_ALL, new Object[]{userId}, categoryRowMapper);
     }
 
+    @Override
+    public void streamAll(Integer userId, Consumer<Category> consumer) {
+        jdbcTemplate.query(SQL_FIND_ALL, ps -> {
+            ps.setFetchSize(Constants.STREAM_FETCH_SIZE);
+            ps.setInt(1, userId);
+        }, (RowCallbackHandler) rs -> consumer.accept(categoryRowMapper.mapRow(rs, rs.getRow())));
+    }
+
     @Override
     public Category findById(Integer userId, Integer categoryId) throws EtResourceNotFoundException {
         try {
@@ -49,17 +73,11 @@ public class CategoryRepositoryImpl implements CategoryRepository {
     }
 
     @Override
-    public Integer create(Integer userId, String title, String description) throws EtBadRequestException {
+    public Category create(Integer userId, String title, String description) throws EtBadRequestException {
         try {
-            KeyHolder keyHolder = new GeneratedKeyHolder();
-            jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection.prepareStatement(SQL_CREATE, Statement.RETURN_GENERATED_KEYS);
-                ps.setInt(1, userId);
-                ps.setString(2, title);
-                ps.setString(3, description);
-                return ps;
-            }, keyHolder);
-            return (Integer) keyHolder.getKeys().get("CATEGORY_ID");
+            Category category = jdbcTemplate.queryForObject(SQL_CREATE, new Object[]{idAllocator.nextId(ID_SEQUENCE), userId, title, description}, categoryRowMapper);
+            dataVersionRepository.bump(userId);
+            return category;
         }catch (Exception e) {
             throw new EtBadRequestException("Invalid request");
         }
@@ -68,20 +86,48 @@ public class CategoryRepositoryImpl implements CategoryRepository {
     @Override
     public void update(Integer userId, Integer categoryId, Category category) throws EtBadRequestException {
         try {
-            jdbcTemplate.update(SQL_UPDATE, new Object[]{category.getTitle(), category.getDescription(), userId, categoryId});
+            int count = jdbcTemplate.update(SQL_UPDATE, new Object[]{category.getTitle(), category.getDescription(), userId, categoryId});
+            if(count == 0)
+                throw new EtBadRequestException("Invalid request");
+            dataVersionRepository.bump(userId);
         }catch (Exception e) {
             throw new EtBadRequestException("Invalid request");
         }
     }
 
     @Override
-    public void removeById(Integer userId, Integer categoryId) {
-        this.removeAllCatTransactions(categoryId);
-        jdbcTemplate.update(SQL_DELETE_CATEGORY, new Object[]{userId, categoryId});
+    public List<CategoryTotalsDrift> findTotalsDrift() {
+        return jdbcTemplate.query(SQL_FIND_TOTALS_DRIFT, (rs, rowNum) -> new CategoryTotalsDrift(rs.getInt("CATEGORY_ID"),
+                rs.getInt("USER_ID"),
+                rs.getLong("TOTAL_EXPENSE_CENTS"),
+                rs.getInt("TRANSACTION_COUNT"),
+                rs.getLong("ACTUAL_TOTAL_EXPENSE_CENTS"),
+                rs.getInt("ACTUAL_TRANSACTION_COUNT")));
+    }
+
+    @Override
+    public CategoryTotalsDrift reconcileTotals(Integer categoryId) {
+        List<CategoryTotalsDrift> locked = jdbcTemplate.query(SQL_LOCK_TOTALS, new Object[]{categoryId}, (rs, rowNum) ->
+                new CategoryTotalsDrift(categoryId, rs.getInt("USER_ID"), rs.getLong("TOTAL_EXPENSE_CENTS"), rs.getInt("TRANSACTION_COUNT"), 0, 0));
+        if(locked.isEmpty())
+            return null;
+        CategoryTotalsDrift recorded = locked.get(0);
+        // A statement of its own, so it sees every write committed before the lock was granted
+        CategoryTotalsDrift drift = jdbcTemplate.queryForObject(SQL_FIND_ACTUAL_TOTALS, new Object[]{categoryId}, (rs, rowNum) ->
+                new CategoryTotalsDrift(categoryId, recorded.getUserId(), recorded.getRecordedTotalExpense(), recorded.getRecordedTransactionCount(),
+                        rs.getLong("TOTAL_EXPENSE_CENTS"), rs.getInt("TRANSACTION_COUNT")));
+        // The drift seen by the sweep was a write in flight
+        if(drift.getRecordedTotalExpense() == drift.getActualTotalExpense()
+                && drift.getRecordedTransactionCount() == drift.getActualTransactionCount())
+            return null;
+        jdbcTemplate.update(SQL_SET_TOTALS, new Object[]{Money.toDecimal(drift.getActualTotalExpense()), drift.getActualTransactionCount(), categoryId});
+        dataVersionRepository.bumpForCategory(categoryId);
+        return drift;
     }
 
-    private void removeAllCatTransactions(Integer categoryId) {
-        jdbcTemplate.update(SQL_DELETE_ALL_TRANSACTIONS, new Object[]{categoryId});
+    @Override
+    public void publishChange(Integer userId) {
+        jdbcTemplate.query(SQL_NOTIFY_CHANGE, new Object[]{userId.toString()}, (ResultSetExtractor<Void>) rs -> null);
     }
 
     private RowMapper<Category> categoryRowMapper = ((rs, rowNum) -> {
@@ -89,6 +135,7 @@ public class CategoryRepositoryImpl implements CategoryRepository {
                 rs.getInt("USER_ID"),
                 rs.getString("TITLE"),
                 rs.getString("DESCRIPTION"),
-                rs.getDouble("TOTAL_EXPENSE"));
+                rs.getLong("TOTAL_EXPENSE_CENTS"),
+                rs.getInt("TRANSACTION_COUNT"));
     });
 }
@@ -0,0 +1,15 @@
+package com.pairlearning.expensetracker.repositories;
+
+import java.util.SortedSet;
+
+public interface DataVersionRepository {
+
+    long findByUserId(Integer userId);
+
+    void bump(Integer userId);
+
+    void bumpAll(SortedSet<Integer> userIds);
+
+    void bumpForCategory(Integer categoryId);
+
+}
@@ -0,0 +1,51 @@
+package com.pairlearning.expensetracker.repositories;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.stream.Collectors;
+
+/**
+ * Per-user counter of category and transaction changes. Writes bump it in their own transaction, so a reader that
+ * sees a version also sees every change it covers.
+ */
+@Repository
+public class DataVersionRepositoryImpl implements DataVersionRepository {
+
+    private static final String SQL_FIND = "SELECT DATA_VERSION FROM ET_USERS WHERE USER_ID = ?";
+    private static final String SQL_BUMP = "UPDATE ET_USERS SET DATA_VERSION = DATA_VERSION + 1 WHERE USER_ID = ?";
+    private static final String SQL_BUMP_FOR_CATEGORY = "UPDATE ET_USERS SET DATA_VERSION = DATA_VERSION + 1 " +
+            "WHERE USER_ID = (SELECT USER_ID FROM ET_CATEGORIES WHERE CATEGORY_ID = ?)";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Override
+    public long findByUserId(Integer userId) {
+        List<Long> versions = jdbcTemplate.queryForList(SQL_FIND, new Object[]{userId}, Long.class);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    @Override
+    public void bump(Integer userId) {
+        jdbcTemplate.update(SQL_BUMP, new Object[]{userId});
+    }
+
+    // Sorted, so concurrent writers lock user rows in the same order
+    @Override
+    public void bumpAll(SortedSet<Integer> userIds) {
+        jdbcTemplate.batchUpdate(SQL_BUMP, userIds.stream().map(userId -> new Object[]{userId}).collect(Collectors.toList()));
+    }
+
+    @Override
+    public void bumpForCategory(Integer categoryId) {
+        jdbcTemplate.update(SQL_BUMP_FOR_CATEGORY, new Object[]{categoryId});
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+}
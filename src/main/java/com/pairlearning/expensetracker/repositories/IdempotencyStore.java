@@ -0,0 +1,20 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.domain.IdempotentResponse;
+
+public interface IdempotencyStore {
+
+    /**
+     * Reserves the key for a request with the given fingerprint. Returns null when the caller now owns the key,
+     * otherwise the entry already held for it, complete or still in flight.
+     */
+    IdempotentResponse reserve(String key, String fingerprint);
+
+    void complete(String key, IdempotentResponse response);
+
+    /**
+     * Gives up an in-flight reservation so the request can be retried.
+     */
+    void release(String key);
+
+}
@@ -0,0 +1,48 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pairlearning.expensetracker.domain.IdempotentResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keys held by this node only, bounded in number and age. Enough for a single instance or sticky routing; use
+ * {@link JdbcIdempotencyStore} when retries can land on another node.
+ */
+public class InMemoryIdempotencyStore implements IdempotencyStore, MeterBinder {
+
+    private final Cache<String, IdempotentResponse> cache;
+
+    public InMemoryIdempotencyStore(long maximumSize, long ttlSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public IdempotentResponse reserve(String key, String fingerprint) {
+        return cache.asMap().putIfAbsent(key, IdempotentResponse.inFlight(fingerprint));
+    }
+
+    @Override
+    public void complete(String key, IdempotentResponse response) {
+        cache.put(key, response);
+    }
+
+    @Override
+    public void release(String key) {
+        cache.asMap().computeIfPresent(key, (k, response) -> response.isComplete() ? response : null);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "idempotencyKeys", Collections.emptyList());
+    }
+}
@@ -0,0 +1,67 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.domain.IdempotentResponse;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.List;
+
+/**
+ * Keys shared by every node through et_idempotency_keys. Each statement commits on its own, outside the request's
+ * write. Entries older than the TTL, and in-flight entries whose node died, are taken over by the next request and
+ * purged periodically.
+ */
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private static final String SQL_RESERVE = "INSERT INTO ET_IDEMPOTENCY_KEYS (IDEMPOTENCY_KEY, FINGERPRINT, STATUS, CREATED_AT) VALUES(?, ?, 0, ?) " +
+            "ON CONFLICT (IDEMPOTENCY_KEY) DO UPDATE SET FINGERPRINT = EXCLUDED.FINGERPRINT, STATUS = 0, CONTENT_TYPE = NULL, BODY = NULL, CREATED_AT = EXCLUDED.CREATED_AT " +
+            "WHERE ET_IDEMPOTENCY_KEYS.CREATED_AT < ? OR (ET_IDEMPOTENCY_KEYS.STATUS = 0 AND ET_IDEMPOTENCY_KEYS.CREATED_AT < ?)";
+    private static final String SQL_FIND = "SELECT FINGERPRINT, STATUS, CONTENT_TYPE, BODY FROM ET_IDEMPOTENCY_KEYS WHERE IDEMPOTENCY_KEY = ?";
+    private static final String SQL_COMPLETE = "UPDATE ET_IDEMPOTENCY_KEYS SET STATUS = ?, CONTENT_TYPE = ?, BODY = ? WHERE IDEMPOTENCY_KEY = ?";
+    private static final String SQL_RELEASE = "DELETE FROM ET_IDEMPOTENCY_KEYS WHERE IDEMPOTENCY_KEY = ? AND STATUS = 0";
+    private static final String SQL_PURGE_EXPIRED = "DELETE FROM ET_IDEMPOTENCY_KEYS WHERE CREATED_AT < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlMillis;
+
+    public JdbcIdempotencyStore(JdbcTemplate jdbcTemplate, long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlMillis = ttlSeconds * 1000;
+    }
+
+    @Override
+    public IdempotentResponse reserve(String key, String fingerprint) {
+        long now = System.currentTimeMillis();
+        int reserved = jdbcTemplate.update(SQL_RESERVE, new Object[]{key, fingerprint, now, now - ttlMillis,
+                now - Constants.IDEMPOTENCY_IN_FLIGHT_TIMEOUT_MS});
+        if(reserved == 1)
+            return null;
+        List<IdempotentResponse> responses = jdbcTemplate.query(SQL_FIND, new Object[]{key}, idempotentResponseRowMapper);
+        // Released between the two statements: report it in flight and let the client retry
+        return responses.isEmpty() ? IdempotentResponse.inFlight(fingerprint) : responses.get(0);
+    }
+
+    @Override
+    public void complete(String key, IdempotentResponse response) {
+        jdbcTemplate.update(SQL_COMPLETE, new Object[]{response.getStatus(), response.getContentType(), response.getBody(), key});
+    }
+
+    @Override
+    public void release(String key) {
+        jdbcTemplate.update(SQL_RELEASE, new Object[]{key});
+    }
+
+    @Scheduled(fixedDelayString = "${et.idempotency.purge-interval-ms}", initialDelayString = "${et.idempotency.purge-interval-ms}")
+    public void purgeExpired() {
+        jdbcTemplate.update(SQL_PURGE_EXPIRED, new Object[]{System.currentTimeMillis() - ttlMillis});
+    }
+
+    private RowMapper<IdempotentResponse> idempotentResponseRowMapper = ((rs, rowNum) -> {
+        return new IdempotentResponse(rs.getString("FINGERPRINT"),
+                rs.getInt("STATUS"),
+                rs.getString("CONTENT_TYPE"),
+                rs.getBytes("BODY"));
+    });
+}
@@ -0,0 +1,79 @@
+package com.pairlearning.expensetracker.repositories;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.StatementCallback;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Times every statement as {@code et.sql.duration}, tagged with the repository constant it was built from
+ * (e.g. {@code TransactionRepositoryImpl.SQL_FIND_ALL}). Statements that are not one of those constants are
+ * tagged {@code other}.
+ */
+public class MeteredJdbcTemplate extends JdbcTemplate {
+
+    private static final String OTHER_STATEMENT = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, String> statementNames = new HashMap<>();
+
+    public MeteredJdbcTemplate(DataSource dataSource, MeterRegistry meterRegistry) {
+        super(dataSource);
+        this.meterRegistry = meterRegistry;
+        registerStatements(CategoryRepositoryImpl.class, CategoryDeletionRepositoryImpl.class, DataVersionRepositoryImpl.class,
+                JdbcIdempotencyStore.class, ReportRepositoryImpl.class, SequenceIdAllocator.class, TransactionRepositoryImpl.class,
+                UserRepositoryImpl.class);
+    }
+
+    @Override
+    public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action) throws DataAccessException {
+        return time(psc, () -> super.execute(psc, action));
+    }
+
+    @Override
+    public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+        return time(action, () -> super.execute(action));
+    }
+
+    private <T> T time(Object sqlProvider, Supplier<T> statement) {
+        String sql = sqlProvider instanceof SqlProvider ? ((SqlProvider) sqlProvider).getSql() : null;
+        String outcome = "error";
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            T result = statement.get();
+            outcome = "success";
+            return result;
+        } finally {
+            sample.stop(Timer.builder("et.sql.duration")
+                    .tag("statement", sql != null ? statementNames.getOrDefault(sql, OTHER_STATEMENT) : OTHER_STATEMENT)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private void registerStatements(Class<?>... repositories) {
+        for(Class<?> repository : repositories) {
+            for(Field field : repository.getDeclaredFields()) {
+                if(Modifier.isStatic(field.getModifiers()) && field.getType() == String.class && field.getName().startsWith("SQL_")) {
+                    try {
+                        field.setAccessible(true);
+                        statementNames.put((String) field.get(null), repository.getSimpleName() + "." + field.getName());
+                    }catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
+import io.r2dbc.spi.Row;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking {@link CategoryRepositoryImpl} for the {@code reactive} profile. Writes run in one transaction each
+ * and publish the change on {@link Constants#CATEGORY_CHANGES_CHANNEL} like the servlet services do.
+ */
+public class R2dbcCategoryRepository implements ReactiveCategoryRepository {
+
+    private static final String SQL_FIND_ALL = "SELECT CATEGORY_ID, USER_ID, TITLE, DESCRIPTION, CAST(TOTAL_EXPENSE * 100 AS BIGINT) TOTAL_EXPENSE_CENTS, TRANSACTION_COUNT " +
+            "FROM ET_CATEGORIES WHERE USER_ID = :userId AND NOT DELETED";
+    private static final String SQL_FIND_BY_ID = "SELECT CATEGORY_ID, USER_ID, TITLE, DESCRIPTION, CAST(TOTAL_EXPENSE * 100 AS BIGINT) TOTAL_EXPENSE_CENTS, TRANSACTION_COUNT " +
+            "FROM ET_CATEGORIES WHERE USER_ID = :userId AND CATEGORY_ID = :categoryId AND NOT DELETED";
+    private static final String SQL_CREATE = "INSERT INTO ET_CATEGORIES (CATEGORY_ID, USER_ID, TITLE, DESCRIPTION) VALUES(:categoryId, :userId, :title, :description) " +
+            "RETURNING CATEGORY_ID, USER_ID, TITLE, DESCRIPTION, CAST(TOTAL_EXPENSE * 100 AS BIGINT) TOTAL_EXPENSE_CENTS, TRANSACTION_COUNT";
+    private static final String SQL_UPDATE = "UPDATE ET_CATEGORIES SET TITLE = :title, DESCRIPTION = :description " +
+            "WHERE USER_ID = :userId AND CATEGORY_ID = :categoryId AND NOT DELETED";
+    private static final String SQL_SOFT_DELETE_CATEGORY = "UPDATE ET_CATEGORIES SET DELETED = TRUE WHERE USER_ID = :userId AND CATEGORY_ID = :categoryId AND NOT DELETED " +
+            "RETURNING TRANSACTION_COUNT";
+    private static final String SQL_DELETE_SPEND_ROLLUPS = "DELETE FROM ET_SPEND_ROLLUPS WHERE USER_ID = :userId AND CATEGORY_ID = :categoryId";
+    private static final String SQL_CREATE_DELETION = "INSERT INTO ET_CATEGORY_DELETIONS (JOB_ID, USER_ID, CATEGORY_ID, STATUS, TRANSACTIONS_TOTAL, CREATED_AT, UPDATED_AT) " +
+            "VALUES(NEXTVAL('ET_CATEGORY_DELETIONS_SEQ'), :userId, :categoryId, 'PENDING', :transactionsTotal, :createdAt, :updatedAt)";
+    private static final String SQL_BUMP_DATA_VERSION = "UPDATE ET_USERS SET DATA_VERSION = DATA_VERSION + 1 WHERE USER_ID = :userId";
+    private static final String SQL_NOTIFY_CHANGE = "SELECT PG_NOTIFY('" + Constants.CATEGORY_CHANGES_CHANNEL + "', :userId)";
+
+    private static final String ID_SEQUENCE = "ET_CATEGORIES_SEQ";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final SequenceIdAllocator idAllocator;
+
+    public R2dbcCategoryRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+                                   SequenceIdAllocator idAllocator) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.idAllocator = idAllocator;
+    }
+
+    @Override
+    public Flux<Category> findAll(Integer userId) {
+        return databaseClient.execute(SQL_FIND_ALL)
+                .bind("userId", userId)
+                .map(R2dbcCategoryRepository::mapCategory)
+                .all();
+    }
+
+    @Override
+    public Mono<Category> findById(Integer userId, Integer categoryId) {
+        return databaseClient.execute(SQL_FIND_BY_ID)
+                .bind("userId", userId)
+                .bind("categoryId", categoryId)
+                .map(R2dbcCategoryRepository::mapCategory)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new EtResourceNotFoundException("Category not found")));
+    }
+
+    @Override
+    public Mono<Category> create(Integer userId, String title, String description) {
+        Mono<Category> create = idAllocator.nextIdAsync(ID_SEQUENCE).flatMap(categoryId -> bindText(bindText(databaseClient.execute(SQL_CREATE)
+                        .bind("categoryId", categoryId)
+                        .bind("userId", userId), "title", title), "description", description)
+                        .map(R2dbcCategoryRepository::mapCategory)
+                        .one())
+                .onErrorMap(e -> new EtBadRequestException("Invalid request"));
+        return create.flatMap(category -> dataChanged(userId).thenReturn(category))
+                .as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Void> update(Integer userId, Integer categoryId, Category category) {
+        Mono<Integer> update = bindText(bindText(databaseClient.execute(SQL_UPDATE),
+                "title", category.getTitle()), "description", category.getDescription())
+                .bind("userId", userId)
+                .bind("categoryId", categoryId)
+                .fetch()
+                .rowsUpdated()
+                .onErrorMap(e -> new EtBadRequestException("Invalid request"));
+        // No row for a missing, deleted or other user's category
+        return update.flatMap(count -> count == 0 ? Mono.<Void>error(new EtBadRequestException("Invalid request")) : dataChanged(userId))
+                .as(transactionalOperator::transactional);
+    }
+
+    /**
+     * Soft-deletes the category and queues its transactions for CategoryDeletionWorker, as an async delete does on
+     * the servlet stack.
+     */
+    @Override
+    public Mono<Void> removeById(Integer userId, Integer categoryId) {
+        Mono<Integer> softDelete = databaseClient.execute(SQL_SOFT_DELETE_CATEGORY)
+                .bind("userId", userId)
+                .bind("categoryId", categoryId)
+                .map(row -> row.get("transaction_count", Integer.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new EtResourceNotFoundException("Category not found")));
+        long now = System.currentTimeMillis();
+        return softDelete.flatMap(transactionsTotal -> databaseClient.execute(SQL_DELETE_SPEND_ROLLUPS)
+                        .bind("userId", userId)
+                        .bind("categoryId", categoryId)
+                        .fetch()
+                        .rowsUpdated()
+                        .then(databaseClient.execute(SQL_CREATE_DELETION)
+                                .bind("userId", userId)
+                                .bind("categoryId", categoryId)
+                                .bind("transactionsTotal", transactionsTotal)
+                                .bind("createdAt", now)
+                                .bind("updatedAt", now)
+                                .fetch()
+                                .rowsUpdated()))
+                .then(dataChanged(userId))
+                .as(transactionalOperator::transactional);
+    }
+
+    // In the write's transaction, so servlet nodes stop answering 304 for the user's listings as soon as it commits
+    private Mono<Void> dataChanged(Integer userId) {
+        return databaseClient.execute(SQL_BUMP_DATA_VERSION)
+                .bind("userId", userId)
+                .fetch()
+                .rowsUpdated()
+                .then(databaseClient.execute(SQL_NOTIFY_CHANGE)
+                        .bind("userId", userId.toString())
+                        .fetch()
+                        .rowsUpdated()
+                        .then());
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindText(DatabaseClient.GenericExecuteSpec spec, String name, String value) {
+        return value == null ? spec.bindNull(name, String.class) : spec.bind(name, value);
+    }
+
+    private static Category mapCategory(Row row) {
+        return new Category(row.get("category_id", Integer.class),
+                row.get("user_id", Integer.class),
+                row.get("title", String.class),
+                row.get("description", String.class),
+                row.get("total_expense_cents", Long.class),
+                row.get("transaction_count", Integer.class));
+    }
+}
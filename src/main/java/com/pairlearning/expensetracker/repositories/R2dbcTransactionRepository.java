@@ -0,0 +1,228 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.domain.Money;
+import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
+import io.r2dbc.spi.Row;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Non-blocking {@link TransactionRepositoryImpl} for the {@code reactive} profile. Every write keeps the category
+ * totals and spend rollups in step inside the same transaction.
+ */
+public class R2dbcTransactionRepository implements ReactiveTransactionRepository {
+
+    // A category being deleted in the background hides its transactions at once, before the worker purges them
+    private static final String CATEGORY_NOT_DELETED = "AND EXISTS (SELECT 1 FROM ET_CATEGORIES C WHERE C.CATEGORY_ID = ET_TRANSACTIONS.CATEGORY_ID AND NOT C.DELETED) ";
+    private static final String FILTERED_SELECT = "SELECT TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE FROM ET_TRANSACTIONS " +
+            "WHERE USER_ID = :userId AND CATEGORY_ID = :categoryId AND TRANSACTION_DATE >= :from AND TRANSACTION_DATE < :to AND AMOUNT BETWEEN :minAmount AND :maxAmount " + CATEGORY_NOT_DELETED;
+    private static final String SQL_FIND_FILTERED_BY_DATE = FILTERED_SELECT + "ORDER BY TRANSACTION_DATE, TRANSACTION_ID";
+    private static final String SQL_FIND_FILTERED_BY_DATE_DESC = FILTERED_SELECT + "ORDER BY TRANSACTION_DATE DESC, TRANSACTION_ID DESC";
+    private static final String SQL_FIND_FILTERED_BY_AMOUNT = FILTERED_SELECT + "ORDER BY AMOUNT, TRANSACTION_DATE, TRANSACTION_ID";
+    private static final String SQL_FIND_FILTERED_BY_AMOUNT_DESC = FILTERED_SELECT + "ORDER BY AMOUNT DESC, TRANSACTION_DATE DESC, TRANSACTION_ID DESC";
+    private static final String SQL_FIND_BY_ID = "SELECT TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE FROM ET_TRANSACTIONS " +
+            "WHERE USER_ID = :userId AND CATEGORY_ID = :categoryId AND TRANSACTION_ID = :transactionId " + CATEGORY_NOT_DELETED;
+    private static final String SQL_FIND_BY_ID_FOR_UPDATE = SQL_FIND_BY_ID + " FOR UPDATE";
+    private static final String SQL_CREATE = "WITH C AS (UPDATE ET_CATEGORIES SET TOTAL_EXPENSE = TOTAL_EXPENSE + :amount, TRANSACTION_COUNT = TRANSACTION_COUNT + 1 " +
+            "WHERE USER_ID = :userId AND CATEGORY_ID = :categoryId AND NOT DELETED RETURNING CATEGORY_ID, USER_ID) " +
+            "INSERT INTO ET_TRANSACTIONS (TRANSACTION_ID, CATEGORY_ID, USER_ID, AMOUNT, NOTE, TRANSACTION_DATE) " +
+            "SELECT :transactionId, CATEGORY_ID, USER_ID, :amount, :note, :transactionDate FROM C " +
+            "RETURNING TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE";
+    private static final String SQL_UPDATE = "UPDATE ET_TRANSACTIONS SET AMOUNT = :amount, NOTE = :note, TRANSACTION_DATE = :transactionDate " +
+            "WHERE USER_ID = :userId AND CATEGORY_ID = :categoryId AND TRANSACTION_ID = :transactionId " + CATEGORY_NOT_DELETED;
+    private static final String SQL_DELETE = "DELETE FROM ET_TRANSACTIONS WHERE USER_ID = :userId AND CATEGORY_ID = :categoryId AND TRANSACTION_ID = :transactionId " +
+            "RETURNING TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE";
+    private static final String SQL_UPDATE_CATEGORY_TOTALS = "UPDATE ET_CATEGORIES SET TOTAL_EXPENSE = TOTAL_EXPENSE + :amount, TRANSACTION_COUNT = TRANSACTION_COUNT + :count " +
+            "WHERE USER_ID = :userId AND CATEGORY_ID = :categoryId AND NOT DELETED";
+    private static final String SQL_UPSERT_SPEND_ROLLUP = "INSERT INTO ET_SPEND_ROLLUPS (USER_ID, GRANULARITY, BUCKET, CATEGORY_ID, TOTAL_EXPENSE, TRANSACTION_COUNT) " +
+            "VALUES(:userId, :granularity, :bucket, :categoryId, :amount, :count) ON CONFLICT (USER_ID, GRANULARITY, BUCKET, CATEGORY_ID) " +
+            "DO UPDATE SET TOTAL_EXPENSE = ET_SPEND_ROLLUPS.TOTAL_EXPENSE + EXCLUDED.TOTAL_EXPENSE, TRANSACTION_COUNT = ET_SPEND_ROLLUPS.TRANSACTION_COUNT + EXCLUDED.TRANSACTION_COUNT";
+    private static final String SQL_BUMP_DATA_VERSION = "UPDATE ET_USERS SET DATA_VERSION = DATA_VERSION + 1 WHERE USER_ID = :userId";
+    private static final String SQL_NOTIFY_CHANGE = "SELECT PG_NOTIFY('" + Constants.CATEGORY_CHANGES_CHANNEL + "', :userId)";
+
+    private static final String ID_SEQUENCE = "ET_TRANSACTIONS_SEQ";
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final SequenceIdAllocator idAllocator;
+
+    public R2dbcTransactionRepository(DatabaseClient databaseClient, TransactionalOperator transactionalOperator,
+                                      SequenceIdAllocator idAllocator) {
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = transactionalOperator;
+        this.idAllocator = idAllocator;
+    }
+
+    @Override
+    public Flux<Transaction> findAll(Integer userId, Integer categoryId, TransactionFilter filter) {
+        return databaseClient.execute(filteredSql(filter.getSort()))
+                .bind("userId", userId)
+                .bind("categoryId", categoryId)
+                .bind("from", filter.getFrom() == null ? Long.MIN_VALUE : filter.getFrom())
+                .bind("to", filter.getTo() == null ? Long.MAX_VALUE : filter.getTo())
+                .bind("minAmount", Money.toDecimal(filter.getMinAmount() == null ? -Constants.TRANSACTION_AMOUNT_LIMIT_CENTS : filter.getMinAmount()))
+                .bind("maxAmount", Money.toDecimal(filter.getMaxAmount() == null ? Constants.TRANSACTION_AMOUNT_LIMIT_CENTS : filter.getMaxAmount()))
+                .map(R2dbcTransactionRepository::mapTransaction)
+                .all();
+    }
+
+    @Override
+    public Mono<Transaction> findById(Integer userId, Integer categoryId, Integer transactionId) {
+        return findById(SQL_FIND_BY_ID, userId, categoryId, transactionId)
+                .switchIfEmpty(Mono.error(() -> new EtResourceNotFoundException("Transaction not found")));
+    }
+
+    @Override
+    public Mono<Transaction> create(Integer userId, Integer categoryId, long amount, String note, Long transactionDate) {
+        // The category totals update doubles as the ownership check: no row comes back for another user's category
+        Mono<Transaction> create = idAllocator.nextIdAsync(ID_SEQUENCE).flatMap(transactionId -> {
+                    DatabaseClient.GenericExecuteSpec spec = bindNote(databaseClient.execute(SQL_CREATE)
+                            .bind("transactionId", transactionId)
+                            .bind("amount", Money.toDecimal(amount))
+                            .bind("userId", userId)
+                            .bind("categoryId", categoryId), note);
+                    return (transactionDate == null ? spec.bindNull("transactionDate", Long.class) : spec.bind("transactionDate", transactionDate))
+                            .map(R2dbcTransactionRepository::mapTransaction)
+                            .one();
+                })
+                .switchIfEmpty(Mono.error(() -> new EtBadRequestException("Invalid request")));
+        return create.flatMap(transaction -> {
+                    SpendRollupDeltas deltas = new SpendRollupDeltas();
+                    deltas.add(transaction.getTransactionDate(), transaction.getAmount(), 1);
+                    return updateSpendRollups(userId, categoryId, deltas)
+                            .then(dataChanged(userId))
+                            .thenReturn(transaction);
+                })
+                .onErrorMap(e -> !(e instanceof EtBadRequestException), e -> new EtBadRequestException("Invalid request"))
+                .as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Void> update(Integer userId, Integer categoryId, Integer transactionId, Transaction transaction) {
+        Mono<Void> update = findById(SQL_FIND_BY_ID_FOR_UPDATE, userId, categoryId, transactionId)
+                .switchIfEmpty(Mono.error(() -> new EtBadRequestException("Invalid request")))
+                .flatMap(previous -> bindNote(databaseClient.execute(SQL_UPDATE)
+                                .bind("amount", Money.toDecimal(transaction.getAmount())), transaction.getNote())
+                        .bind("transactionDate", transaction.getTransactionDate())
+                        .bind("userId", userId)
+                        .bind("categoryId", categoryId)
+                        .bind("transactionId", transactionId)
+                        .fetch()
+                        .rowsUpdated()
+                        .then(updateCategoryTotals(userId, categoryId, transaction.getAmount() - previous.getAmount(), 0))
+                        .then(Mono.defer(() -> {
+                            SpendRollupDeltas deltas = new SpendRollupDeltas();
+                            deltas.add(previous.getTransactionDate(), -previous.getAmount(), -1);
+                            deltas.add(transaction.getTransactionDate(), transaction.getAmount(), 1);
+                            return updateSpendRollups(userId, categoryId, deltas);
+                        })))
+                .then(dataChanged(userId));
+        return update.onErrorMap(e -> !(e instanceof EtBadRequestException), e -> new EtBadRequestException("Invalid request"))
+                .as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Void> removeById(Integer userId, Integer categoryId, Integer transactionId) {
+        Mono<Void> remove = databaseClient.execute(SQL_DELETE)
+                .bind("userId", userId)
+                .bind("categoryId", categoryId)
+                .bind("transactionId", transactionId)
+                .map(R2dbcTransactionRepository::mapTransaction)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new EtResourceNotFoundException("Transaction not found")))
+                .flatMap(transaction -> {
+                    SpendRollupDeltas deltas = new SpendRollupDeltas();
+                    deltas.add(transaction.getTransactionDate(), -transaction.getAmount(), -1);
+                    return updateCategoryTotals(userId, categoryId, -transaction.getAmount(), -1)
+                            .then(updateSpendRollups(userId, categoryId, deltas));
+                })
+                .then(dataChanged(userId));
+        return remove.as(transactionalOperator::transactional);
+    }
+
+    private Mono<Transaction> findById(String sql, Integer userId, Integer categoryId, Integer transactionId) {
+        return databaseClient.execute(sql)
+                .bind("userId", userId)
+                .bind("categoryId", categoryId)
+                .bind("transactionId", transactionId)
+                .map(R2dbcTransactionRepository::mapTransaction)
+                .one();
+    }
+
+    private String filteredSql(TransactionFilter.Sort sort) {
+        if(sort == null)
+            return SQL_FIND_FILTERED_BY_DATE;
+        switch (sort) {
+            case DATE_DESC:
+                return SQL_FIND_FILTERED_BY_DATE_DESC;
+            case AMOUNT:
+                return SQL_FIND_FILTERED_BY_AMOUNT;
+            case AMOUNT_DESC:
+                return SQL_FIND_FILTERED_BY_AMOUNT_DESC;
+            default:
+                return SQL_FIND_FILTERED_BY_DATE;
+        }
+    }
+
+    private Mono<Void> updateCategoryTotals(Integer userId, Integer categoryId, long amountDelta, int countDelta) {
+        return databaseClient.execute(SQL_UPDATE_CATEGORY_TOTALS)
+                .bind("amount", Money.toDecimal(amountDelta))
+                .bind("count", countDelta)
+                .bind("userId", userId)
+                .bind("categoryId", categoryId)
+                .fetch()
+                .rowsUpdated()
+                .flatMap(count -> count == 0 ? Mono.error(new EtBadRequestException("Category not found")) : Mono.empty());
+    }
+
+    // Sequential rather than merged so rollup rows are still locked in key order
+    private Mono<Void> updateSpendRollups(Integer userId, Integer categoryId, SpendRollupDeltas deltas) {
+        List<Object[]> rows = deltas.rows();
+        return Flux.fromIterable(rows)
+                .concatMap(row -> databaseClient.execute(SQL_UPSERT_SPEND_ROLLUP)
+                        .bind("userId", userId)
+                        .bind("granularity", row[0].toString())
+                        .bind("bucket", (Long) row[1])
+                        .bind("categoryId", categoryId)
+                        .bind("amount", Money.toDecimal((Long) row[2]))
+                        .bind("count", (Integer) row[3])
+                        .fetch()
+                        .rowsUpdated())
+                .then();
+    }
+
+    // In the write's transaction, so servlet nodes stop answering 304 for the user's listings as soon as it commits
+    private Mono<Void> dataChanged(Integer userId) {
+        return databaseClient.execute(SQL_BUMP_DATA_VERSION)
+                .bind("userId", userId)
+                .fetch()
+                .rowsUpdated()
+                .then(databaseClient.execute(SQL_NOTIFY_CHANGE)
+                        .bind("userId", userId.toString())
+                        .fetch()
+                        .rowsUpdated()
+                        .then());
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNote(DatabaseClient.GenericExecuteSpec spec, String note) {
+        return note == null ? spec.bindNull("note", String.class) : spec.bind("note", note);
+    }
+
+    private static Transaction mapTransaction(Row row) {
+        return new Transaction(row.get("transaction_id", Integer.class),
+                row.get("category_id", Integer.class),
+                row.get("user_id", Integer.class),
+                row.get("amount_cents", Long.class),
+                row.get("note", String.class),
+                row.get("transaction_date", Long.class));
+    }
+}
@@ -0,0 +1,19 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.domain.Category;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveCategoryRepository {
+
+    Flux<Category> findAll(Integer userId);
+
+    Mono<Category> findById(Integer userId, Integer categoryId);
+
+    Mono<Category> create(Integer userId, String title, String description);
+
+    Mono<Void> update(Integer userId, Integer categoryId, Category category);
+
+    Mono<Void> removeById(Integer userId, Integer categoryId);
+
+}
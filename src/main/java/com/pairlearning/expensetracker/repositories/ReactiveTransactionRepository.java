@@ -0,0 +1,20 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveTransactionRepository {
+
+    Flux<Transaction> findAll(Integer userId, Integer categoryId, TransactionFilter filter);
+
+    Mono<Transaction> findById(Integer userId, Integer categoryId, Integer transactionId);
+
+    Mono<Transaction> create(Integer userId, Integer categoryId, long amount, String note, Long transactionDate);
+
+    Mono<Void> update(Integer userId, Integer categoryId, Integer transactionId, Transaction transaction);
+
+    Mono<Void> removeById(Integer userId, Integer categoryId, Integer transactionId);
+
+}
@@ -0,0 +1,11 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.domain.SpendRollup;
+
+import java.util.List;
+
+public interface ReportRepository {
+
+    List<SpendRollup> findSpend(Integer userId, SpendRollup.Granularity granularity, long fromBucket, long toBucket);
+
+}
@@ -0,0 +1,32 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.domain.SpendRollup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class ReportRepositoryImpl implements ReportRepository {
+
+    private static final String SQL_FIND_SPEND = "SELECT CATEGORY_ID, BUCKET, CAST(TOTAL_EXPENSE * 100 AS BIGINT) TOTAL_EXPENSE_CENTS, TRANSACTION_COUNT " +
+            "FROM ET_SPEND_ROLLUPS WHERE USER_ID = ? AND GRANULARITY = ? AND BUCKET >= ? AND BUCKET < ? AND TRANSACTION_COUNT > 0 " +
+            "ORDER BY CATEGORY_ID, BUCKET";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Override
+    public List<SpendRollup> findSpend(Integer userId, SpendRollup.Granularity granularity, long fromBucket, long toBucket) {
+        return jdbcTemplate.query(SQL_FIND_SPEND, new Object[]{userId, granularity.name(), fromBucket, toBucket}, spendRollupRowMapper);
+    }
+
+    private RowMapper<SpendRollup> spendRollupRowMapper = ((rs, rowNum) -> {
+        return new SpendRollup(rs.getInt("CATEGORY_ID"),
+                rs.getLong("BUCKET"),
+                rs.getLong("TOTAL_EXPENSE_CENTS"),
+                rs.getInt("TRANSACTION_COUNT"));
+    });
+}
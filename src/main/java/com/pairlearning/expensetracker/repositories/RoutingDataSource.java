@@ -0,0 +1,97 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends read-only transactions to the replica pool and everything else, including reads outside a transaction, to
+ * the primary. A user whose write
+ * committed within the last {@code readYourWritesMillis} on this node keeps reading from the primary, so they see
+ * their own write before the replica catches up.
+ * <p>
+ * The role is picked when the transaction first asks for a connection, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class RoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Role { PRIMARY, REPLICA }
+
+    private final Cache<Integer, Boolean> recentWriters;
+    private final Counter primaryCounter;
+    private final Counter stickyCounter;
+    private final Counter replicaCounter;
+
+    public RoutingDataSource(DataSource primary, DataSource replica, long readYourWritesMillis, MeterRegistry meterRegistry) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(Role.PRIMARY, primary);
+        targets.put(Role.REPLICA, replica);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesMillis, TimeUnit.MILLISECONDS)
+                .build();
+        this.primaryCounter = routedCounter(meterRegistry, "primary", "write");
+        this.stickyCounter = routedCounter(meterRegistry, "primary", "read-your-writes");
+        this.replicaCounter = routedCounter(meterRegistry, "replica", "read");
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        Integer userId = currentUserId();
+        if(!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // Only a real transaction can write; a read outside one (non-transactional scope) goes to the primary without pinning
+            if(userId != null && TransactionSynchronizationManager.isActualTransactionActive()
+                    && TransactionSynchronizationManager.isSynchronizationActive())
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        markWritten(userId);
+                    }
+                });
+            primaryCounter.increment();
+            return Role.PRIMARY;
+        }
+        if(userId != null && recentWriters.getIfPresent(userId) != null) {
+            stickyCounter.increment();
+            return Role.PRIMARY;
+        }
+        replicaCounter.increment();
+        return Role.REPLICA;
+    }
+
+    /**
+     * Pins the user's reads to the primary, for writes committed outside their request thread.
+     */
+    public void markWritten(Integer userId) {
+        recentWriters.put(userId, Boolean.TRUE);
+    }
+
+    // Set by AuthFilter; absent for unauthenticated and background work
+    private static Integer currentUserId() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if(attributes == null)
+            return null;
+        Object userId = attributes.getAttribute("userId", RequestAttributes.SCOPE_REQUEST);
+        return userId instanceof Integer ? (Integer) userId : null;
+    }
+
+    private static Counter routedCounter(MeterRegistry meterRegistry, String role, String reason) {
+        return Counter.builder("et.datasource.routed")
+                .description("Transactions routed to each connection pool")
+                .tags("role", role, "reason", reason)
+                .register(meterRegistry);
+    }
+}
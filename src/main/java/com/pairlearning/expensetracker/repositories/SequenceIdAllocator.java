@@ -0,0 +1,168 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.Constants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.DatabaseClient;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands out ids from blocks reserved on the ET_* sequences, so inserts know their id up front and most need no
+ * sequence call. Each NEXTVAL returns the top of a block of {@link Constants#ID_BLOCK_SIZE} ids that belongs to
+ * this node alone, which also keeps it safe alongside any statement that calls NEXTVAL inline. Ids of a block
+ * left unused at shutdown are skipped, so ids are unique and increasing per node but not gap-free. Ids come from
+ * memory without locks; when a block runs out, one caller fetches the next and the others wait on its result, parked
+ * rather than holding a monitor.
+ */
+@Component
+public class SequenceIdAllocator {
+
+    private static final String SQL_NEXT_BLOCKS = "SELECT NEXTVAL(CAST(? AS REGCLASS)) FROM GENERATE_SERIES(1, ?)";
+    private static final String SQL_NEXT_BLOCK_R2DBC = "SELECT NEXTVAL(CAST(:sequence AS REGCLASS))";
+
+    private static final Block EXHAUSTED = new Block(1, 0);
+
+    private final ConcurrentMap<String, Block> blocks = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<Block>> refills = new ConcurrentHashMap<>();
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    // Only in the reactive profile
+    @Autowired(required = false)
+    DatabaseClient databaseClient;
+
+    public int nextId(String sequence) {
+        while(true) {
+            Block block = blocks.getOrDefault(sequence, EXHAUSTED);
+            int id = block.next();
+            if(id != 0)
+                return id;
+            try {
+                refill(sequence, block, () -> CompletableFuture.completedFuture(fetchBlocks(sequence, 1).get(0))).join();
+            }catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+            }
+        }
+    }
+
+    /**
+     * {@link #nextId} for R2DBC callers: a new block is fetched through the {@link DatabaseClient}, without blocking.
+     */
+    public Mono<Integer> nextIdAsync(String sequence) {
+        return Mono.defer(() -> {
+            Block block = blocks.getOrDefault(sequence, EXHAUSTED);
+            int id = block.next();
+            if(id != 0)
+                return Mono.just(id);
+            return Mono.fromFuture(refill(sequence, block, () -> databaseClient.execute(SQL_NEXT_BLOCK_R2DBC)
+                            .bind("sequence", sequence)
+                            .map(row -> row.get(0, Long.class).intValue())
+                            .one()
+                            .toFuture()))
+                    .then(nextIdAsync(sequence));
+        });
+    }
+
+    /**
+     * Takes what is left of the current block, then fetches every further block needed in one statement.
+     */
+    public List<Integer> nextIds(String sequence, int count) {
+        List<Integer> ids = new ArrayList<>(count);
+        Block block = blocks.getOrDefault(sequence, EXHAUSTED);
+        int id;
+        while(ids.size() < count && (id = block.next()) != 0)
+            ids.add(id);
+        if(ids.size() == count)
+            return ids;
+        int missing = count - ids.size();
+        List<Integer> highs = fetchBlocks(sequence, (missing + Constants.ID_BLOCK_SIZE - 1) / Constants.ID_BLOCK_SIZE);
+        for(int high : highs) {
+            Block fetched = new Block(high - Constants.ID_BLOCK_SIZE + 1, high);
+            while(ids.size() < count && (id = fetched.next()) != 0)
+                ids.add(id);
+            // Whatever the batch leaves of its last block serves later single inserts
+            if(ids.size() == count && fetched.remaining() > 0)
+                blocks.put(sequence, fetched);
+        }
+        return ids;
+    }
+
+    // Callers that find the block empty at the same time share one fetch, run by the first of them
+    private CompletableFuture<Block> refill(String sequence, Block exhausted, Supplier<CompletableFuture<Integer>> fetch) {
+        CompletableFuture<Block> refill = new CompletableFuture<>();
+        CompletableFuture<Block> running = refills.putIfAbsent(sequence, refill);
+        if(running != null)
+            return running;
+        Block current = blocks.getOrDefault(sequence, EXHAUSTED);
+        if(current != exhausted) {
+            // Refilled since the caller looked
+            refills.remove(sequence, refill);
+            refill.complete(current);
+            return refill;
+        }
+        CompletableFuture<Integer> high;
+        try {
+            high = fetch.get();
+        }catch (RuntimeException e) {
+            high = new CompletableFuture<>();
+            high.completeExceptionally(e);
+        }
+        high.whenComplete((top, error) -> {
+            Block fetched = error == null ? new Block(top - Constants.ID_BLOCK_SIZE + 1, top) : null;
+            if(fetched != null)
+                blocks.put(sequence, fetched);
+            refills.remove(sequence, refill);
+            if(fetched != null)
+                refill.complete(fetched);
+            else
+                refill.completeExceptionally(error);
+        });
+        return refill;
+    }
+
+    private List<Integer> fetchBlocks(String sequence, int count) {
+        return jdbcTemplate.queryForList(SQL_NEXT_BLOCKS, new Object[]{sequence, count}, Integer.class);
+    }
+
+    public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void setDatabaseClient(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    private static class Block {
+
+        private final AtomicInteger next;
+        private final int high;
+
+        private Block(int low, int high) {
+            this.next = new AtomicInteger(low);
+            this.high = high;
+        }
+
+        // 0 once the block is used up; sequences start at 1 so it is never a real id
+        private int next() {
+            if(next.get() > high)
+                return 0;
+            int id = next.getAndIncrement();
+            return id <= high ? id : 0;
+        }
+
+        private int remaining() {
+            return Math.max(0, high - next.get() + 1);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.pairlearning.expensetracker.repositories;
+
+import com.pairlearning.expensetracker.domain.SpendRollup;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Amount and count changes per rollup bucket for one category, collected so a write touches each bucket once.
+ * Buckets come out in key order, so concurrent writers lock rollup rows in the same order.
+ */
+class SpendRollupDeltas {
+
+    private final Map<SpendRollup.Granularity, TreeMap<Long, long[]>> deltas = new EnumMap<>(SpendRollup.Granularity.class);
+
+    void add(long transactionDate, long amount, int count) {
+        for(SpendRollup.Granularity granularity : SpendRollup.Granularity.values()) {
+            long[] delta = deltas.computeIfAbsent(granularity, g -> new TreeMap<>())
+                    .computeIfAbsent(granularity.bucketOf(transactionDate), b -> new long[2]);
+            delta[0] = Math.addExact(delta[0], amount);
+            delta[1] += count;
+        }
+    }
+
+    /**
+     * Non-empty deltas as {granularity, bucket, amount in cents, count}.
+     */
+    List<Object[]> rows() {
+        List<Object[]> rows = new ArrayList<>();
+        deltas.forEach((granularity, buckets) -> buckets.forEach((bucket, delta) -> {
+            if(delta[0] != 0 || delta[1] != 0)
+                rows.add(new Object[]{granularity, bucket, delta[0], (int) delta[1]});
+        }));
+        return rows;
+    }
+}
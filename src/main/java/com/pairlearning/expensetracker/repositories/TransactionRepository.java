@@ -1,18 +1,35 @@
 package com.pairlearning.expensetracker.repositories;
 
 import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import com.pairlearning.expensetracker.domain.TransactionList;
 import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
 import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TransactionRepository {
 
-    List<Transaction> findAll(Integer userId, Integer categoryId);
+    TransactionList findAll(Integer userId, Integer categoryId);
+
+    TransactionList findFiltered(Integer userId, Integer categoryId, TransactionFilter filter);
+
+    List<Transaction> findPage(Integer userId, Integer categoryId, Long afterTransactionDate, Integer afterTransactionId, int limit);
+
+    void streamAll(Integer userId, Integer categoryId, Consumer<Transaction> consumer);
 
     Transaction findById(Integer userId, Integer categoryId, Integer transactionId) throws EtResourceNotFoundException;
 
-    Integer create(Integer userId, Integer categoryId, Double amount, String note, Long transactionDate) throws EtBadRequestException;
+    Transaction create(Integer userId, Integer categoryId, long amount, String note, Long transactionDate) throws EtBadRequestException;
+
+    List<Integer> createBatch(Integer userId, Integer categoryId, List<Transaction> transactions) throws EtBadRequestException;
+
+    /**
+     * Inserts rows of any users and categories in one go. A row whose category is not its user's is skipped and
+     * comes back as null.
+     */
+    List<Transaction> createGroup(List<Transaction> transactions);
 
     void update(Integer userId, Integer categoryId, Integer transactionId, Transaction transaction) throws EtBadRequestException;
 
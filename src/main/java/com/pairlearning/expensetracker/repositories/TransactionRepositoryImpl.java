@@ -1,34 +1,107 @@
 package com.pairlearning.expensetracker.repositories;
 
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.domain.Money;
 import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import com.pairlearning.expensetracker.domain.TransactionList;
 import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
 import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.sql.PreparedStatement;
-import java.sql.Statement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 @Repository
 public class TransactionRepositoryImpl implements TransactionRepository {
 
-    private static final String SQL_FIND_ALL = "SELECT TRANSACTION_ID, CATEGORY_ID, USER_ID, AMOUNT, NOTE, TRANSACTION_DATE FROM ET_TRANSACTIONS WHERE USER_ID = ? AND CATEGORY_ID = ?";
-    private static final String SQL_FIND_BY_ID = "SELECT TRANSACTION_ID, CATEGORY_ID, USER_ID, AMOUNT, NOTE, TRANSACTION_DATE FROM ET_TRANSACTIONS WHERE USER_ID = ? AND CATEGORY_ID = ? AND TRANSACTION_ID = ?";
-    private static final String SQL_CREATE = "INSERT INTO ET_TRANSACTIONS (TRANSACTION_ID, CATEGORY_ID, USER_ID, AMOUNT, NOTE, TRANSACTION_DATE) VALUES(NEXTVAL('ET_TRANSACTIONS_SEQ'), ?, ?, ?, ?, ?)";
+    // A category being deleted in the background hides its transactions at once, before the worker purges them
+    private static final String CATEGORY_NOT_DELETED = "AND EXISTS (SELECT 1 FROM ET_CATEGORIES C WHERE C.CATEGORY_ID = ET_TRANSACTIONS.CATEGORY_ID AND NOT C.DELETED) ";
+    private static final String SQL_FIND_ALL = "SELECT TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE FROM ET_TRANSACTIONS WHERE USER_ID = ? AND CATEGORY_ID = ? " +
+            CATEGORY_NOT_DELETED;
+    // Unset bounds are bound as the widest values so each sort order stays a single prepared statement
+    private static final String FILTERED_SELECT = "SELECT TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE FROM ET_TRANSACTIONS " +
+            "WHERE USER_ID = ? AND CATEGORY_ID = ? AND TRANSACTION_DATE >= ? AND TRANSACTION_DATE < ? AND AMOUNT BETWEEN ? AND ? " + CATEGORY_NOT_DELETED;
+    private static final String SQL_FIND_FILTERED_BY_DATE = FILTERED_SELECT + "ORDER BY TRANSACTION_DATE, TRANSACTION_ID";
+    private static final String SQL_FIND_FILTERED_BY_DATE_DESC = FILTERED_SELECT + "ORDER BY TRANSACTION_DATE DESC, TRANSACTION_ID DESC";
+    private static final String SQL_FIND_FILTERED_BY_AMOUNT = FILTERED_SELECT + "ORDER BY AMOUNT, TRANSACTION_DATE, TRANSACTION_ID";
+    private static final String SQL_FIND_FILTERED_BY_AMOUNT_DESC = FILTERED_SELECT + "ORDER BY AMOUNT DESC, TRANSACTION_DATE DESC, TRANSACTION_ID DESC";
+    private static final String SQL_FIND_FIRST_PAGE = "SELECT TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE FROM ET_TRANSACTIONS WHERE USER_ID = ? AND CATEGORY_ID = ? " +
+            CATEGORY_NOT_DELETED + "ORDER BY TRANSACTION_DATE, TRANSACTION_ID LIMIT ?";
+    private static final String SQL_FIND_PAGE_AFTER = "SELECT TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE FROM ET_TRANSACTIONS WHERE USER_ID = ? AND CATEGORY_ID = ? " +
+            "AND (TRANSACTION_DATE, TRANSACTION_ID) > (?, ?) " + CATEGORY_NOT_DELETED + "ORDER BY TRANSACTION_DATE, TRANSACTION_ID LIMIT ?";
+    private static final String SQL_FIND_BY_ID = "SELECT TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE FROM ET_TRANSACTIONS WHERE USER_ID = ? AND CATEGORY_ID = ? AND TRANSACTION_ID = ? " +
+            CATEGORY_NOT_DELETED;
+    private static final String SQL_CREATE = "WITH C AS (UPDATE ET_CATEGORIES SET TOTAL_EXPENSE = TOTAL_EXPENSE + ?, TRANSACTION_COUNT = TRANSACTION_COUNT + 1 " +
+            "WHERE USER_ID = ? AND CATEGORY_ID = ? AND NOT DELETED RETURNING CATEGORY_ID, USER_ID) " +
+            "INSERT INTO ET_TRANSACTIONS (TRANSACTION_ID, CATEGORY_ID, USER_ID, AMOUNT, NOTE, TRANSACTION_DATE) " +
+            "SELECT ?, CATEGORY_ID, USER_ID, ?, ?, ? FROM C " +
+            "RETURNING TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE";
+    private static final String SQL_CREATE_WITH_ID = "INSERT INTO ET_TRANSACTIONS (TRANSACTION_ID, CATEGORY_ID, USER_ID, AMOUNT, NOTE, TRANSACTION_DATE) VALUES(?, ?, ?, ?, ?, ?)";
     private static final String SQL_UPDATE = "UPDATE ET_TRANSACTIONS SET AMOUNT = ?, NOTE = ?, TRANSACTION_DATE = ? WHERE USER_ID = ? AND CATEGORY_ID = ? AND TRANSACTION_ID = ?";
-    private static final String SQL_DELETE = "DELETE FROM ET_TRANSACTIONS WHERE USER_ID = ? AND CATEGORY_ID = ? AND TRANSACTION_ID = ?";
+    private static final String SQL_DELETE = "DELETE FROM ET_TRANSACTIONS WHERE USER_ID = ? AND CATEGORY_ID = ? AND TRANSACTION_ID = ? " +
+            "RETURNING TRANSACTION_ID, CATEGORY_ID, USER_ID, CAST(AMOUNT * 100 AS BIGINT) AMOUNT_CENTS, NOTE, TRANSACTION_DATE";
+    private static final String SQL_FIND_BY_ID_FOR_UPDATE = SQL_FIND_BY_ID + " FOR UPDATE";
+    private static final String SQL_UPDATE_CATEGORY_TOTALS = "UPDATE ET_CATEGORIES SET TOTAL_EXPENSE = TOTAL_EXPENSE + ?, TRANSACTION_COUNT = TRANSACTION_COUNT + ? " +
+            "WHERE USER_ID = ? AND CATEGORY_ID = ? AND NOT DELETED";
+    private static final String SQL_UPSERT_SPEND_ROLLUP = "INSERT INTO ET_SPEND_ROLLUPS (USER_ID, GRANULARITY, BUCKET, CATEGORY_ID, TOTAL_EXPENSE, TRANSACTION_COUNT) " +
+            "VALUES(?, ?, ?, ?, ?, ?) ON CONFLICT (USER_ID, GRANULARITY, BUCKET, CATEGORY_ID) " +
+            "DO UPDATE SET TOTAL_EXPENSE = ET_SPEND_ROLLUPS.TOTAL_EXPENSE + EXCLUDED.TOTAL_EXPENSE, TRANSACTION_COUNT = ET_SPEND_ROLLUPS.TRANSACTION_COUNT + EXCLUDED.TRANSACTION_COUNT";
+
+    private static final String ID_SEQUENCE = "ET_TRANSACTIONS_SEQ";
 
     @Autowired
     JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    SequenceIdAllocator idAllocator;
+
+    @Autowired
+    DataVersionRepository dataVersionRepository;
+
+    @Override
+    public TransactionList findAll(Integer userId, Integer categoryId) {
+        return jdbcTemplate.query(SQL_FIND_ALL, new Object[]{userId, categoryId}, transactionListExtractor);
+    }
+
+    @Override
+    public TransactionList findFiltered(Integer userId, Integer categoryId, TransactionFilter filter) {
+        long from = filter.getFrom() == null ? Long.MIN_VALUE : filter.getFrom();
+        long to = filter.getTo() == null ? Long.MAX_VALUE : filter.getTo();
+        long minAmount = filter.getMinAmount() == null ? -Constants.TRANSACTION_AMOUNT_LIMIT_CENTS : filter.getMinAmount();
+        long maxAmount = filter.getMaxAmount() == null ? Constants.TRANSACTION_AMOUNT_LIMIT_CENTS : filter.getMaxAmount();
+        return jdbcTemplate.query(filteredSql(filter.getSort()),
+                new Object[]{userId, categoryId, from, to, Money.toDecimal(minAmount), Money.toDecimal(maxAmount)}, transactionListExtractor);
+    }
+
+    @Override
+    public List<Transaction> findPage(Integer userId, Integer categoryId, Long afterTransactionDate, Integer afterTransactionId, int limit) {
+        if(afterTransactionDate == null || afterTransactionId == null)
+            return jdbcTemplate.query(SQL_FIND_FIRST_PAGE, new Object[]{userId, categoryId, limit}, transactionRowMapper);
+        return jdbcTemplate.query(SQL_FIND_PAGE_AFTER, new Object[]{userId, categoryId, afterTransactionDate, afterTransactionId, limit}, transactionRowMapper);
+    }
+
     @Override
-    public List<Transaction> findAll(Integer userId, Integer categoryId) {
-        return jdbcTemplate.query(SQL_FIND_ALL, new Object[]{userId, categoryId}, transactionRowMapper);
+    public void streamAll(Integer userId, Integer categoryId, Consumer<Transaction> consumer) {
+        jdbcTemplate.query(SQL_FIND_ALL, ps -> {
+            ps.setFetchSize(Constants.STREAM_FETCH_SIZE);
+            ps.setInt(1, userId);
+            ps.setInt(2, categoryId);
+        }, (RowCallbackHandler) rs -> consumer.accept(transactionRowMapper.mapRow(rs, rs.getRow())));
     }
 
     @Override
@@ -41,28 +114,143 @@ public class TransactionRepositoryImpl implements TransactionRepository {
     }
 
     @Override
-    public Integer create(Integer userId, Integer categoryId, Double amount, String note, Long transactionDate) throws EtBadRequestException {
+    public Transaction create(Integer userId, Integer categoryId, long amount, String note, Long transactionDate) throws EtBadRequestException {
+        try {
+            // The category totals update doubles as the ownership check: no row comes back for another user's category
+            BigDecimal storedAmount = Money.toDecimal(amount);
+            Transaction transaction = jdbcTemplate.queryForObject(SQL_CREATE, new Object[]{storedAmount, userId, categoryId, idAllocator.nextId(ID_SEQUENCE), storedAmount, note, transactionDate},
+                    transactionRowMapper);
+            SpendRollupDeltas deltas = new SpendRollupDeltas();
+            deltas.add(transaction.getTransactionDate(), transaction.getAmount(), 1);
+            updateSpendRollups(userId, categoryId, deltas);
+            dataVersionRepository.bump(userId);
+            return transaction;
+        }catch (Exception e) {
+            throw new EtBadRequestException("Invalid request");
+        }
+    }
+
+    @Override
+    public List<Integer> createBatch(Integer userId, Integer categoryId, List<Transaction> transactions) throws EtBadRequestException {
         try {
-            KeyHolder keyHolder = new GeneratedKeyHolder();
-            jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection.prepareStatement(SQL_CREATE, Statement.RETURN_GENERATED_KEYS);
-                ps.setInt(1, categoryId);
-                ps.setInt(2, userId);
-                ps.setDouble(3, amount);
-                ps.setString(4, note);
-                ps.setLong(5, transactionDate);
-                return ps;
-            }, keyHolder);
-            return (Integer) keyHolder.getKeys().get("TRANSACTION_ID");
+            List<Integer> transactionIds = idAllocator.nextIds(ID_SEQUENCE, transactions.size());
+            jdbcTemplate.batchUpdate(SQL_CREATE_WITH_ID, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Transaction transaction = transactions.get(i);
+                    ps.setInt(1, transactionIds.get(i));
+                    ps.setInt(2, categoryId);
+                    ps.setInt(3, userId);
+                    ps.setBigDecimal(4, Money.toDecimal(transaction.getAmount()));
+                    ps.setString(5, transaction.getNote());
+                    ps.setLong(6, transaction.getTransactionDate());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return transactions.size();
+                }
+            });
+            long total = 0;
+            SpendRollupDeltas deltas = new SpendRollupDeltas();
+            for(Transaction transaction : transactions) {
+                total = Math.addExact(total, transaction.getAmount());
+                deltas.add(transaction.getTransactionDate(), transaction.getAmount(), 1);
+            }
+            updateCategoryTotals(userId, categoryId, total, transactions.size());
+            updateSpendRollups(userId, categoryId, deltas);
+            dataVersionRepository.bump(userId);
+            return transactionIds;
         }catch (Exception e) {
             throw new EtBadRequestException("Invalid request");
         }
     }
 
+    @Override
+    public List<Transaction> createGroup(List<Transaction> transactions) {
+        // Category totals move once per category, in key order so concurrent writers lock categories in the same order
+        TreeMap<Long, long[]> totals = new TreeMap<>();
+        for(Transaction transaction : transactions) {
+            long[] total = totals.computeIfAbsent(categoryKey(transaction.getUserId(), transaction.getCategoryId()), key -> new long[2]);
+            total[0] = Math.addExact(total[0], transaction.getAmount());
+            total[1]++;
+        }
+        List<Long> keys = new ArrayList<>(totals.keySet());
+        int[] updated = jdbcTemplate.batchUpdate(SQL_UPDATE_CATEGORY_TOTALS, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                long key = keys.get(i);
+                long[] total = totals.get(key);
+                ps.setBigDecimal(1, Money.toDecimal(total[0]));
+                ps.setInt(2, (int) total[1]);
+                ps.setInt(3, (int) (key >>> 32));
+                ps.setInt(4, (int) key);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return keys.size();
+            }
+        });
+        TreeMap<Long, SpendRollupDeltas> deltas = new TreeMap<>();
+        for(int i = 0; i < keys.size(); i++)
+            if(updated[i] != 0)
+                deltas.put(keys.get(i), new SpendRollupDeltas());
+
+        List<Transaction> accepted = new ArrayList<>();
+        for(Transaction transaction : transactions)
+            if(deltas.containsKey(categoryKey(transaction.getUserId(), transaction.getCategoryId())))
+                accepted.add(transaction);
+        List<Transaction> created = new ArrayList<>(Collections.nCopies(transactions.size(), null));
+        if(accepted.isEmpty())
+            return created;
+
+        // With reWriteBatchedInserts the driver sends this as multi-row INSERTs
+        List<Integer> transactionIds = idAllocator.nextIds(ID_SEQUENCE, accepted.size());
+        jdbcTemplate.batchUpdate(SQL_CREATE_WITH_ID, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Transaction transaction = accepted.get(i);
+                ps.setInt(1, transactionIds.get(i));
+                ps.setInt(2, transaction.getCategoryId());
+                ps.setInt(3, transaction.getUserId());
+                ps.setBigDecimal(4, Money.toDecimal(transaction.getAmount()));
+                ps.setString(5, transaction.getNote());
+                ps.setLong(6, transaction.getTransactionDate());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return accepted.size();
+            }
+        });
+        TreeSet<Integer> userIds = new TreeSet<>();
+        for(int i = 0, j = 0; i < transactions.size(); i++) {
+            Transaction transaction = transactions.get(i);
+            SpendRollupDeltas categoryDeltas = deltas.get(categoryKey(transaction.getUserId(), transaction.getCategoryId()));
+            if(categoryDeltas == null)
+                continue;
+            categoryDeltas.add(transaction.getTransactionDate(), transaction.getAmount(), 1);
+            userIds.add(transaction.getUserId());
+            created.set(i, new Transaction(transactionIds.get(j++), transaction.getCategoryId(), transaction.getUserId(),
+                    transaction.getAmount(), transaction.getNote(), transaction.getTransactionDate()));
+        }
+        updateSpendRollups(deltas);
+        dataVersionRepository.bumpAll(userIds);
+        return created;
+    }
+
     @Override
     public void update(Integer userId, Integer categoryId, Integer transactionId, Transaction transaction) throws EtBadRequestException {
         try {
-            jdbcTemplate.update(SQL_UPDATE, new Object[]{transaction.getAmount(), transaction.getNote(), transaction.getTransactionDate(), userId, categoryId, transactionId});
+            Transaction previous = jdbcTemplate.queryForObject(SQL_FIND_BY_ID_FOR_UPDATE, new Object[]{userId, categoryId, transactionId}, transactionRowMapper);
+            jdbcTemplate.update(SQL_UPDATE, new Object[]{Money.toDecimal(transaction.getAmount()), transaction.getNote(), transaction.getTransactionDate(), userId, categoryId, transactionId});
+            updateCategoryTotals(userId, categoryId, transaction.getAmount() - previous.getAmount(), 0);
+            SpendRollupDeltas deltas = new SpendRollupDeltas();
+            deltas.add(previous.getTransactionDate(), -previous.getAmount(), -1);
+            deltas.add(transaction.getTransactionDate(), transaction.getAmount(), 1);
+            updateSpendRollups(userId, categoryId, deltas);
+            dataVersionRepository.bump(userId);
         }catch (Exception e) {
             throw new EtBadRequestException("Invalid request");
         }
@@ -70,17 +258,97 @@ public class TransactionRepositoryImpl implements TransactionRepository {
 
     @Override
     public void removeById(Integer userId, Integer categoryId, Integer transactionId) throws EtResourceNotFoundException {
-        int count = jdbcTemplate.update(SQL_DELETE, new Object[]{userId, categoryId, transactionId});
-        if(count == 0)
+        List<Transaction> removed = jdbcTemplate.query(SQL_DELETE, new Object[]{userId, categoryId, transactionId}, transactionRowMapper);
+        if(removed.isEmpty())
             throw new EtResourceNotFoundException("Transaction not found");
+        Transaction transaction = removed.get(0);
+        updateCategoryTotals(userId, categoryId, -transaction.getAmount(), -1);
+        SpendRollupDeltas deltas = new SpendRollupDeltas();
+        deltas.add(transaction.getTransactionDate(), -transaction.getAmount(), -1);
+        updateSpendRollups(userId, categoryId, deltas);
+        dataVersionRepository.bump(userId);
+    }
+
+    private String filteredSql(TransactionFilter.Sort sort) {
+        if(sort == null)
+            return SQL_FIND_FILTERED_BY_DATE;
+        switch (sort) {
+            case DATE_DESC:
+                return SQL_FIND_FILTERED_BY_DATE_DESC;
+            case AMOUNT:
+                return SQL_FIND_FILTERED_BY_AMOUNT;
+            case AMOUNT_DESC:
+                return SQL_FIND_FILTERED_BY_AMOUNT_DESC;
+            default:
+                return SQL_FIND_FILTERED_BY_DATE;
+        }
+    }
+
+    private void updateCategoryTotals(Integer userId, Integer categoryId, long amountDelta, int countDelta) {
+        int count = jdbcTemplate.update(SQL_UPDATE_CATEGORY_TOTALS, new Object[]{Money.toDecimal(amountDelta), countDelta, userId, categoryId});
+        if(count == 0)
+            throw new EtBadRequestException("Category not found");
+    }
+
+    private void updateSpendRollups(Integer userId, Integer categoryId, SpendRollupDeltas deltas) {
+        updateSpendRollups(Collections.singletonMap(categoryKey(userId, categoryId), deltas));
+    }
+
+    // Keyed by categoryKey; iterated in key order so rollup rows are locked in the same order by every writer
+    private void updateSpendRollups(Map<Long, SpendRollupDeltas> deltasByCategory) {
+        List<Long> keys = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        deltasByCategory.forEach((key, deltas) -> {
+            for(Object[] row : deltas.rows()) {
+                keys.add(key);
+                rows.add(row);
+            }
+        });
+        if(rows.isEmpty())
+            return;
+        jdbcTemplate.batchUpdate(SQL_UPSERT_SPEND_ROLLUP, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                long key = keys.get(i);
+                Object[] row = rows.get(i);
+                ps.setInt(1, (int) (key >>> 32));
+                ps.setString(2, row[0].toString());
+                ps.setLong(3, (Long) row[1]);
+                ps.setInt(4, (int) key);
+                ps.setBigDecimal(5, Money.toDecimal((Long) row[2]));
+                ps.setInt(6, (Integer) row[3]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    // User id in the high half, category id in the low half; orders like (USER_ID, CATEGORY_ID) for positive ids
+    private static long categoryKey(int userId, int categoryId) {
+        return ((long) userId << 32) | (categoryId & 0xFFFFFFFFL);
     }
 
     private RowMapper<Transaction> transactionRowMapper = ((rs, rowNum) -> {
         return new Transaction(rs.getInt("TRANSACTION_ID"),
                 rs.getInt("CATEGORY_ID"),
                 rs.getInt("USER_ID"),
-                rs.getDouble("AMOUNT"),
+                rs.getLong("AMOUNT_CENTS"),
                 rs.getString("NOTE"),
                 rs.getLong("TRANSACTION_DATE"));
     });
+
+    private ResultSetExtractor<TransactionList> transactionListExtractor = (rs -> {
+        TransactionList transactions = new TransactionList();
+        while(rs.next())
+            transactions.add(rs.getInt("TRANSACTION_ID"),
+                    rs.getInt("CATEGORY_ID"),
+                    rs.getInt("USER_ID"),
+                    rs.getLong("AMOUNT_CENTS"),
+                    rs.getString("NOTE"),
+                    rs.getLong("TRANSACTION_DATE"));
+        return transactions;
+    });
 }
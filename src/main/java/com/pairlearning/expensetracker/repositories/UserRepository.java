@@ -5,11 +5,9 @@ import com.pairlearning.expensetracker.exceptions.EtAuthException;
 
 public interface UserRepository {
 
-    Integer create(String firstName, String lastName, String email, String password) throws EtAuthException;
+    User create(String firstName, String lastName, String email, String hashedPassword) throws EtAuthException;
 
-    User findByEmailAndPassword(String email, String password) throws EtAuthException;
-
-    Integer getCountByEmail(String email);
+    User findByEmail(String email) throws EtAuthException;
 
     User findById(Integer userId);
 
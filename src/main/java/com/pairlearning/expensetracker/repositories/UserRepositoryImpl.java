@@ -2,67 +2,52 @@ package com.pairlearning.expensetracker.repositories;
 
 import com.pairlearning.expensetracker.domain.User;
 import com.pairlearning.expensetracker.exceptions.EtAuthException;
-import org.mindrot.jbcrypt.BCrypt;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
 
-import java.sql.PreparedStatement;
-import java.sql.Statement;
-
 @Repository
 public class UserRepositoryImpl implements UserRepository {
 
-    private static final String SQL_CREATE = "INSERT INTO ET_USERS(USER_ID, FIRST_NAME, LAST_NAME, EMAIL, PASSWORD) VALUES(NEXTVAL('ET_USERS_SEQ'), ?, ?, ?, ?)";
-    private static final String SQL_COUNT_BY_EMAIL = "SELECT COUNT(*) FROM ET_USERS WHERE EMAIL = ?";
+    // Arbitrated by et_users_email_lower_idx: a taken email inserts nothing and returns no row
+    private static final String SQL_CREATE = "INSERT INTO ET_USERS(USER_ID, FIRST_NAME, LAST_NAME, EMAIL, PASSWORD) VALUES(?, ?, ?, ?, ?) " +
+            "ON CONFLICT ((LOWER(EMAIL))) DO NOTHING " +
+            "RETURNING USER_ID, FIRST_NAME, LAST_NAME, EMAIL, PASSWORD";
     private static final String SQL_FIND_BY_ID = "SELECT USER_ID, FIRST_NAME, LAST_NAME, EMAIL, PASSWORD " +
             "FROM ET_USERS WHERE USER_ID = ?";
     private static final String SQL_FIND_BY_EMAIL = "SELECT USER_ID, FIRST_NAME, LAST_NAME, EMAIL, PASSWORD " +
-            "FROM ET_USERS WHERE EMAIL = ?";
+            "FROM ET_USERS WHERE LOWER(EMAIL) = ?";
+
+    private static final String ID_SEQUENCE = "ET_USERS_SEQ";
 
     @Autowired
     JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    SequenceIdAllocator idAllocator;
+
     @Override
-    public Integer create(String firstName, String lastName, String email, String password) throws EtAuthException {
-        String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt(10));
+    public User create(String firstName, String lastName, String email, String hashedPassword) throws EtAuthException {
         try {
-            KeyHolder keyHolder = new GeneratedKeyHolder();
-            jdbcTemplate.update(connection -> {
-                PreparedStatement ps = connection.prepareStatement(SQL_CREATE, Statement.RETURN_GENERATED_KEYS);
-                ps.setString(1, firstName);
-                ps.setString(2, lastName);
-                ps.setString(3, email);
-                ps.setString(4, hashedPassword);
-                return ps;
-            }, keyHolder);
-            return (Integer) keyHolder.getKeys().get("USER_ID");
+            return jdbcTemplate.queryForObject(SQL_CREATE, new Object[]{idAllocator.nextId(ID_SEQUENCE), firstName, lastName, email, hashedPassword}, userRowMapper);
+        }catch (EmptyResultDataAccessException e) {
+            throw new EtAuthException("Email already in use");
         }catch (Exception e) {
             throw new EtAuthException("Invalid details. Failed to create account");
         }
     }
 
     @Override
-    public User findByEmailAndPassword(String email, String password) throws EtAuthException {
+    public User findByEmail(String email) throws EtAuthException {
         try {
-            User user = jdbcTemplate.queryForObject(SQL_FIND_BY_EMAIL, new Object[]{email}, userRowMapper);
-            if(!BCrypt.checkpw(password, user.getPassword()))
-                throw new EtAuthException("Invalid email/password");
-            return user;
+            return jdbcTemplate.queryForObject(SQL_FIND_BY_EMAIL, new Object[]{email}, userRowMapper);
         }catch (EmptyResultDataAccessException e) {
             throw new EtAuthException("Invalid email/password");
         }
     }
 
-    @Override
-    public Integer getCountByEmail(String email) {
-        return jdbcTemplate.queryForObject(SQL_COUNT_BY_EMAIL, new Object[]{email}, Integer.class);
-    }
-
     @Override
     public User findById(Integer userId) {
         return jdbcTemplate.queryForObject(SQL_FIND_BY_ID, new Object[]{userId}, userRowMapper);
@@ -79,4 +64,8 @@ public class UserRepositoryImpl implements UserRepository {
     public void setJdbcTemplate(JdbcTemplate jdbcTemplate) {
         this.jdbcTemplate = jdbcTemplate;
     }
+
+    public void setIdAllocator(SequenceIdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
 }
@@ -0,0 +1,82 @@
+package com.pairlearning.expensetracker.resources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.repositories.ReactiveCategoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Map;
+
+@Component
+@Profile("reactive")
+public class CategoryHandler {
+
+    static final ParameterizedTypeReference<Map<String, Object>> MAP_TYPE = new ParameterizedTypeReference<Map<String, Object>>() {};
+    static final Map<String, Boolean> SUCCESS = Collections.singletonMap("success", true);
+
+    @Autowired
+    ReactiveCategoryRepository categoryRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    public Mono<ServerResponse> getAllCategories(ServerRequest request) {
+        int userId = userId(request);
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                .body((response, context) -> response.writeWith(
+                        JsonArrayFlux.encode(categoryRepository.findAll(userId), objectMapper, response.bufferFactory())));
+    }
+
+    public Mono<ServerResponse> getCategoryById(ServerRequest request) {
+        return categoryRepository.findById(userId(request), categoryId(request))
+                .flatMap(category -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(category));
+    }
+
+    public Mono<ServerResponse> addCategory(ServerRequest request) {
+        int userId = userId(request);
+        return request.bodyToMono(MAP_TYPE)
+                .flatMap(categoryMap -> categoryRepository.create(userId,
+                        (String) categoryMap.get("title"), (String) categoryMap.get("description")))
+                .flatMap(category -> ServerResponse.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON).bodyValue(category));
+    }
+
+    public Mono<ServerResponse> updateCategory(ServerRequest request) {
+        int userId = userId(request);
+        int categoryId = categoryId(request);
+        return request.bodyToMono(Category.class)
+                .flatMap(category -> categoryRepository.update(userId, categoryId, category))
+                .then(ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(SUCCESS));
+    }
+
+    public Mono<ServerResponse> deleteCategory(ServerRequest request) {
+        return categoryRepository.removeById(userId(request), categoryId(request))
+                .then(ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(SUCCESS));
+    }
+
+    static int userId(ServerRequest request) {
+        return (Integer) request.attribute("userId").orElseThrow(IllegalStateException::new);
+    }
+
+    static int categoryId(ServerRequest request) {
+        return parseId("categoryId", request.pathVariable("categoryId"));
+    }
+
+    // A NumberFormatException would otherwise surface as 500
+    static int parseId(String name, String value) throws EtBadRequestException {
+        try {
+            return Integer.parseInt(value);
+        }catch (NumberFormatException e) {
+            throw new EtBadRequestException(name + " must be a number");
+        }
+    }
+}
@@ -1,36 +1,67 @@
 package com.pairlearning.expensetracker.resources;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.domain.CategoryDeletion;
 import com.pairlearning.expensetracker.services.CategoryService;
+import com.pairlearning.expensetracker.services.DataVersionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/categories")
 public class CategoryResource {
 
     @Autowired
     CategoryService categoryService;
 
+    @Autowired
+    DataVersionService dataVersionService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
     @GetMapping("")
-    public ResponseEntity<List<Category>> getAllCategories(HttpServletRequest request) {
+    public ResponseEntity<List<Category>> getAllCategories(HttpServletRequest request, WebRequest webRequest) {
         int userId = (Integer) request.getAttribute("userId");
-        List<Category> categories = categoryService.fetchAllCategories(userId);
+        long version = dataVersionService.fetchDataVersion(userId);
+        if(DataVersionETag.checkNotModified(webRequest, userId, version))
+            return null;
+        List<Category> categories = categoryService.fetchAllCategories(userId, version);
         return new ResponseEntity<>(categories, HttpStatus.OK);
     }
 
+    @GetMapping(value = "", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllCategories(HttpServletRequest request, WebRequest webRequest) {
+        int userId = (Integer) request.getAttribute("userId");
+        if(DataVersionETag.checkNotModified(dataVersionService, webRequest, userId))
+            return null;
+        StreamingResponseBody body = new JsonArrayStream<Category>(objectMapper,
+                consumer -> categoryService.streamAllCategories(userId, consumer));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     @GetMapping("/{categoryId}")
-    public ResponseEntity<Category> getCategoryById(HttpServletRequest request,
+    public ResponseEntity<Category> getCategoryById(HttpServletRequest request, WebRequest webRequest,
                                                     @PathVariable("categoryId") Integer categoryId) {
         int userId = (Integer) request.getAttribute("userId");
-        Category category = categoryService.fetchCategoryById(userId, categoryId);
+        long version = dataVersionService.fetchDataVersion(userId);
+        if(DataVersionETag.checkNotModified(webRequest, userId, version))
+            return null;
+        Category category = categoryService.fetchCategoryById(userId, categoryId, version);
         return new ResponseEntity<>(category, HttpStatus.OK);
     }
 
@@ -56,12 +87,35 @@ public class CategoryResource {
     }
 
     @DeleteMapping("/{categoryId}")
-    public ResponseEntity<Map<String, Boolean>> deleteCategory(HttpServletRequest request,
-                                                               @PathVariable("categoryId") Integer categoryId) {
+    public ResponseEntity<?> deleteCategory(HttpServletRequest request,
+                                            @PathVariable("categoryId") Integer categoryId) {
         int userId = (Integer) request.getAttribute("userId");
-        categoryService.removeCategoryWithAllTransactions(userId, categoryId);
+        CategoryDeletion deletion = categoryService.removeCategoryWithAllTransactions(userId, categoryId);
+        // The category is gone either way; transactions left for the retry sweep are reported as an async deletion
+        if(deletion.getStatus() != CategoryDeletion.Status.DONE)
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/categories/deletions/" + deletion.getJobId()))
+                    .body(deletion);
         Map<String, Boolean> map = new HashMap<>();
         map.put("success", true);
         return new ResponseEntity<>(map, HttpStatus.OK);
     }
+
+    @DeleteMapping(value = "/{categoryId}", params = "async=true")
+    public ResponseEntity<CategoryDeletion> deleteCategoryAsync(HttpServletRequest request,
+                                                                @PathVariable("categoryId") Integer categoryId) {
+        int userId = (Integer) request.getAttribute("userId");
+        CategoryDeletion deletion = categoryService.startCategoryDeletion(userId, categoryId);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/categories/deletions/" + deletion.getJobId()))
+                .body(deletion);
+    }
+
+    @GetMapping("/deletions/{jobId}")
+    public ResponseEntity<CategoryDeletion> getCategoryDeletion(HttpServletRequest request,
+                                                                @PathVariable("jobId") Integer jobId) {
+        int userId = (Integer) request.getAttribute("userId");
+        CategoryDeletion deletion = categoryService.fetchCategoryDeletion(userId, jobId);
+        return new ResponseEntity<>(deletion, HttpStatus.OK);
+    }
 }
@@ -0,0 +1,41 @@
+package com.pairlearning.expensetracker.resources;
+
+import com.pairlearning.expensetracker.services.DataVersionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Conditional GET on the user's data version. The version is read before the data, so a response is never older
+ * than the ETag it carries; weak because the same data can be encoded more than one way. The tag is the same for
+ * JSON, Smile and CBOR and for compressed bodies, so responses vary on the headers that pick those.
+ */
+final class DataVersionETag {
+
+    private static final String VARY = HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING;
+
+    private DataVersionETag() {
+    }
+
+    /**
+     * Sets the ETag, and returns true once the response has been answered with 304.
+     */
+    static boolean checkNotModified(DataVersionService dataVersionService, WebRequest webRequest, int userId) {
+        return checkNotModified(webRequest, userId, dataVersionService.fetchDataVersion(userId));
+    }
+
+    /**
+     * For callers that pass the version on to the read, e.g. so cached data can be checked against it.
+     */
+    static boolean checkNotModified(WebRequest webRequest, int userId, long version) {
+        // On the 304 as well, so a cache never answers one representation with another
+        if(webRequest instanceof NativeWebRequest) {
+            HttpServletResponse response = ((NativeWebRequest) webRequest).getNativeResponse(HttpServletResponse.class);
+            if(response != null)
+                response.addHeader(HttpHeaders.VARY, VARY);
+        }
+        return webRequest.checkNotModified("W/\"" + userId + "-" + version + "\"");
+    }
+}
@@ -0,0 +1,49 @@
+package com.pairlearning.expensetracker.resources;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reactive counterpart of {@link JsonArrayStream}: one buffer per row, requested from the database as the client
+ * drains the response. WebFlux's JSON encoder collects a {@link Flux} into a list before writing plain
+ * {@code application/json}, which would hold the whole listing in memory.
+ */
+class JsonArrayFlux {
+
+    private static final byte OPEN = '[';
+    private static final byte COMMA = ',';
+    private static final byte[] CLOSE = {']'};
+    private static final byte[] EMPTY = {'[', ']'};
+
+    private JsonArrayFlux() {
+    }
+
+    static <T> Flux<DataBuffer> encode(Flux<T> rows, ObjectMapper objectMapper, DataBufferFactory bufferFactory) {
+        return Flux.defer(() -> {
+            AtomicBoolean first = new AtomicBoolean(true);
+            Flux<DataBuffer> body = rows.map(row -> {
+                byte[] json = writeValueAsBytes(objectMapper, row);
+                DataBuffer buffer = bufferFactory.allocateBuffer(json.length + 1);
+                buffer.write(first.getAndSet(false) ? OPEN : COMMA);
+                return buffer.write(json);
+            });
+            // A failure part-way leaves the array unterminated, as with JsonArrayStream
+            return body.concatWith(Mono.fromSupplier(() -> bufferFactory.wrap(first.get() ? EMPTY : CLOSE)));
+        });
+    }
+
+    private static byte[] writeValueAsBytes(ObjectMapper objectMapper, Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        }catch (JsonProcessingException e) {
+            throw Exceptions.propagate(e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.pairlearning.expensetracker.resources;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes a JSON array element by element as the source hands rows over, so nothing beyond the generator's own
+ * buffer is held per request. A failure part-way leaves the array unterminated rather than closing it, so a
+ * client never mistakes a cut-off listing for a complete one.
+ */
+class JsonArrayStream<T> implements StreamingResponseBody {
+
+    private final ObjectMapper objectMapper;
+    private final Consumer<Consumer<T>> source;
+    private final HttpServletRequest request;
+
+    JsonArrayStream(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+        this.objectMapper = objectMapper;
+        this.source = source;
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        this.request = requestAttributes instanceof ServletRequestAttributes ? ((ServletRequestAttributes) requestAttributes).getRequest() : null;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        // Written on an async thread; carry the request over so the source is routed as its user
+        boolean bindRequest = RequestContextHolder.getRequestAttributes() == null && request != null;
+        if(bindRequest)
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            generator.writeStartArray();
+            source.accept(row -> {
+                try {
+                    generator.writeObject(row);
+                }catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }catch (UncheckedIOException e) {
+            throw e.getCause();
+        }finally {
+            generator.close();
+            if(bindRequest)
+                RequestContextHolder.resetRequestAttributes();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.pairlearning.expensetracker.resources;
+
+import com.pairlearning.expensetracker.domain.SpendRollup;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.services.ReportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+@RestController
+@Profile("!reactive")
+@RequestMapping("/api/reports")
+public class ReportResource {
+
+    @Autowired
+    ReportService reportService;
+
+    @GetMapping("/spend")
+    public ResponseEntity<List<SpendRollup>> getSpend(HttpServletRequest request,
+                                                      @RequestParam(value = "granularity", defaultValue = "month") String granularity,
+                                                      @RequestParam(value = "from", required = false) Long from,
+                                                      @RequestParam(value = "to", required = false) Long to) {
+        int userId = (Integer) request.getAttribute("userId");
+        List<SpendRollup> spend = reportService.fetchSpend(userId, parseGranularity(granularity), from, to);
+        return new ResponseEntity<>(spend, HttpStatus.OK);
+    }
+
+    private SpendRollup.Granularity parseGranularity(String granularity) throws EtBadRequestException {
+        switch (granularity) {
+            case "month":
+                return SpendRollup.Granularity.MONTH;
+            case "week":
+                return SpendRollup.Granularity.WEEK;
+            default:
+                throw new EtBadRequestException("granularity must be month or week");
+        }
+    }
+}
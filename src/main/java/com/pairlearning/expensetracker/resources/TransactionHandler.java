@@ -0,0 +1,93 @@
+package com.pairlearning.expensetracker.resources;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pairlearning.expensetracker.domain.Money;
+import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.repositories.ReactiveTransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import static com.pairlearning.expensetracker.resources.CategoryHandler.MAP_TYPE;
+import static com.pairlearning.expensetracker.resources.CategoryHandler.SUCCESS;
+import static com.pairlearning.expensetracker.resources.CategoryHandler.categoryId;
+import static com.pairlearning.expensetracker.resources.CategoryHandler.userId;
+
+@Component
+@Profile("reactive")
+public class TransactionHandler {
+
+    @Autowired
+    ReactiveTransactionRepository transactionRepository;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    public Mono<ServerResponse> getAllTransactions(ServerRequest request) {
+        int userId = userId(request);
+        int categoryId = categoryId(request);
+        if(request.queryParam("limit").isPresent())
+            throw new EtBadRequestException("Paged listings are not available in the reactive profile");
+        TransactionFilter filter = new TransactionFilter(
+                request.queryParam("from").map(from -> parseLong("from", from)).orElse(null),
+                request.queryParam("to").map(to -> parseLong("to", to)).orElse(null),
+                request.queryParam("minAmount").map(Money::parseAmount).orElse(null),
+                request.queryParam("maxAmount").map(Money::parseAmount).orElse(null),
+                TransactionFilter.Sort.parse(request.queryParam("sort").orElse(null)));
+        filter.validate();
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON)
+                .body((response, context) -> response.writeWith(
+                        JsonArrayFlux.encode(transactionRepository.findAll(userId, categoryId, filter), objectMapper, response.bufferFactory())));
+    }
+
+    public Mono<ServerResponse> getTransactionById(ServerRequest request) {
+        return transactionRepository.findById(userId(request), categoryId(request), transactionId(request))
+                .flatMap(transaction -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(transaction));
+    }
+
+    public Mono<ServerResponse> addTransaction(ServerRequest request) {
+        int userId = userId(request);
+        int categoryId = categoryId(request);
+        return request.bodyToMono(MAP_TYPE)
+                .flatMap(transactionMap -> {
+                    long amount = Money.parseAmount(transactionMap.get("amount").toString());
+                    Number transactionDate = (Number) transactionMap.get("transactionDate");
+                    return transactionRepository.create(userId, categoryId, amount, (String) transactionMap.get("note"),
+                            transactionDate == null ? null : transactionDate.longValue());
+                })
+                .flatMap(transaction -> ServerResponse.status(HttpStatus.CREATED).contentType(MediaType.APPLICATION_JSON).bodyValue(transaction));
+    }
+
+    public Mono<ServerResponse> updateTransaction(ServerRequest request) {
+        int userId = userId(request);
+        int categoryId = categoryId(request);
+        int transactionId = transactionId(request);
+        return request.bodyToMono(Transaction.class)
+                .flatMap(transaction -> transactionRepository.update(userId, categoryId, transactionId, transaction))
+                .then(ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(SUCCESS));
+    }
+
+    public Mono<ServerResponse> deleteTransaction(ServerRequest request) {
+        return transactionRepository.removeById(userId(request), categoryId(request), transactionId(request))
+                .then(ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(SUCCESS));
+    }
+
+    private static int transactionId(ServerRequest request) {
+        return CategoryHandler.parseId("transactionId", request.pathVariable("transactionId"));
+    }
+
+    private static long parseLong(String name, String value) throws EtBadRequestException {
+        try {
+            return Long.parseLong(value);
+        }catch (NumberFormatException e) {
+            throw new EtBadRequestException(name + " must be a number");
+        }
+    }
+}
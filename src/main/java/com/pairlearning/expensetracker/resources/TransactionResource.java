@@ -1,37 +1,119 @@
 package com.pairlearning.expensetracker.resources;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.domain.Money;
 import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import com.pairlearning.expensetracker.domain.TransactionImportResult;
+import com.pairlearning.expensetracker.domain.TransactionList;
+import com.pairlearning.expensetracker.domain.TransactionPage;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
+import com.pairlearning.expensetracker.services.DataVersionService;
 import com.pairlearning.expensetracker.services.TransactionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/categories/{categoryId}/transactions")
 public class TransactionResource {
 
+    private static final Logger logger = LoggerFactory.getLogger(TransactionResource.class);
+
     @Autowired
     TransactionService transactionService;
 
+    @Autowired
+    DataVersionService dataVersionService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
     @GetMapping("")
-    public ResponseEntity<List<Transaction>> getAllTransactions(HttpServletRequest request,
-                                                                @PathVariable("categoryId") Integer categoryId) {
+    public ResponseEntity<TransactionList> getAllTransactions(HttpServletRequest request, WebRequest webRequest,
+                                                              @PathVariable("categoryId") Integer categoryId,
+                                                              @RequestParam(value = "from", required = false) Long from,
+                                                              @RequestParam(value = "to", required = false) Long to,
+                                                              @RequestParam(value = "minAmount", required = false) String minAmount,
+                                                              @RequestParam(value = "maxAmount", required = false) String maxAmount,
+                                                              @RequestParam(value = "sort", required = false) String sort) {
+        // The variants below each exclude the others, so a request combining them ends up here
+        if(request.getParameter("limit") != null || "columnar".equals(request.getParameter("format"))
+                || "true".equals(request.getParameter("stream")))
+            throw new EtBadRequestException("limit, format=columnar and stream=true cannot be combined");
+        int userId = (Integer) request.getAttribute("userId");
+        TransactionFilter filter = parseFilter(from, to, minAmount, maxAmount, sort);
+        if(DataVersionETag.checkNotModified(dataVersionService, webRequest, userId))
+            return null;
+        return new ResponseEntity<>(fetchTransactions(userId, categoryId, filter), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "", params = {"format=columnar", "!limit", "stream!=true"})
+    public ResponseEntity<TransactionList.Columns> getAllTransactionColumns(HttpServletRequest request, WebRequest webRequest,
+                                                                            @PathVariable("categoryId") Integer categoryId,
+                                                                            @RequestParam(value = "from", required = false) Long from,
+                                                                            @RequestParam(value = "to", required = false) Long to,
+                                                                            @RequestParam(value = "minAmount", required = false) String minAmount,
+                                                                            @RequestParam(value = "maxAmount", required = false) String maxAmount,
+                                                                            @RequestParam(value = "sort", required = false) String sort) {
+        int userId = (Integer) request.getAttribute("userId");
+        TransactionFilter filter = parseFilter(from, to, minAmount, maxAmount, sort);
+        if(DataVersionETag.checkNotModified(dataVersionService, webRequest, userId))
+            return null;
+        return new ResponseEntity<>(fetchTransactions(userId, categoryId, filter).columns(), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "", params = {"limit", "format!=columnar", "stream!=true"})
+    public ResponseEntity<TransactionPage> getTransactionPage(HttpServletRequest request, WebRequest webRequest,
+                                                              @PathVariable("categoryId") Integer categoryId,
+                                                              @RequestParam("limit") Integer limit,
+                                                              @RequestParam(value = "cursor", required = false) String cursor) {
+        int userId = (Integer) request.getAttribute("userId");
+        if(DataVersionETag.checkNotModified(dataVersionService, webRequest, userId))
+            return null;
+        TransactionPage page = transactionService.fetchTransactionPage(userId, categoryId, cursor, limit);
+        return new ResponseEntity<>(page, HttpStatus.OK);
+    }
+
+    @GetMapping(value = "", params = {"stream=true", "!limit", "format!=columnar"})
+    public ResponseEntity<StreamingResponseBody> streamAllTransactions(HttpServletRequest request, WebRequest webRequest,
+                                                                       @PathVariable("categoryId") Integer categoryId) {
         int userId = (Integer) request.getAttribute("userId");
-        List<Transaction> transactions = transactionService.fetchAllTransactions(userId, categoryId);
-        return new ResponseEntity<>(transactions, HttpStatus.OK);
+        if(DataVersionETag.checkNotModified(dataVersionService, webRequest, userId))
+            return null;
+        StreamingResponseBody body = new JsonArrayStream<Transaction>(objectMapper,
+                consumer -> transactionService.streamAllTransactions(userId, categoryId, consumer));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
     }
 
     @GetMapping("/{transactionId}")
-    public ResponseEntity<Transaction> getTransactionById(HttpServletRequest request,
+    public ResponseEntity<Transaction> getTransactionById(HttpServletRequest request, WebRequest webRequest,
                                                           @PathVariable("categoryId") Integer categoryId,
                                                           @PathVariable("transactionId") Integer transactionId) {
         int userId = (Integer) request.getAttribute("userId");
+        if(DataVersionETag.checkNotModified(dataVersionService, webRequest, userId))
+            return null;
         Transaction transaction = transactionService.fetchTransactionById(userId, categoryId, transactionId);
         return new ResponseEntity<>(transaction, HttpStatus.OK);
     }
@@ -41,13 +123,63 @@ public class TransactionResource {
                                                       @PathVariable("categoryId") Integer categoryId,
                                                       @RequestBody Map<String, Object> transactionMap) {
         int userId = (Integer) request.getAttribute("userId");
-        Double amount = Double.valueOf(transactionMap.get("amount").toString());
+        long amount = Money.parseAmount(transactionMap.get("amount").toString());
         String note = (String) transactionMap.get("note");
         Long transactionDate = (Long) transactionMap.get("transactionDate");
         Transaction transaction = transactionService.addTransaction(userId, categoryId, amount, note, transactionDate);
         return new ResponseEntity<>(transaction, HttpStatus.CREATED);
     }
 
+    /**
+     * Imports the rows in chunks of {@link Constants#TRANSACTION_BATCH_CHUNK_SIZE}, each committed on its own. Every
+     * row read gets an outcome. If a chunk fails or the body turns out malformed, the import stops: chunks before it
+     * stay committed, the rows not committed are reported FAILED and the response is 207, or 400 if no row was read.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<TransactionImportResult> addTransactionsBatch(HttpServletRequest request,
+                                                                        @PathVariable("categoryId") Integer categoryId) throws IOException {
+        int userId = (Integer) request.getAttribute("userId");
+        TransactionImportResult result = new TransactionImportResult();
+        List<Transaction> chunk = new ArrayList<>(Constants.TRANSACTION_BATCH_CHUNK_SIZE);
+        List<Integer> chunkIndexes = new ArrayList<>(Constants.TRANSACTION_BATCH_CHUNK_SIZE);
+        try (JsonParser parser = objectMapper.getFactory().createParser(request.getInputStream())) {
+            if(parser.nextToken() != JsonToken.START_ARRAY) {
+                result.setError("Request body must be a JSON array");
+                return new ResponseEntity<>(result, HttpStatus.BAD_REQUEST);
+            }
+            int index = 0;
+            JsonToken token;
+            while((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if(token == null)
+                    throw new EtBadRequestException("Unexpected end of JSON array");
+                JsonNode row = parser.readValueAsTree();
+                if(result.getError() != null) {
+                    // Still read to the end, so the client learns the outcome of every row it sent
+                    result.addFailed(index++, "Not imported, the import stopped at an earlier row");
+                    continue;
+                }
+                try {
+                    chunk.add(parseImportRow(row));
+                    chunkIndexes.add(index);
+                }catch (EtBadRequestException e) {
+                    result.addRejected(index, e.getMessage());
+                }
+                if(chunk.size() == Constants.TRANSACTION_BATCH_CHUNK_SIZE)
+                    importChunk(userId, categoryId, chunk, chunkIndexes, result);
+                index++;
+            }
+            if(result.getError() == null)
+                importChunk(userId, categoryId, chunk, chunkIndexes, result);
+        }catch (JsonProcessingException e) {
+            stopImport("Malformed JSON: " + e.getOriginalMessage(), chunkIndexes, result);
+        }catch (EtBadRequestException e) {
+            stopImport(e.getMessage(), chunkIndexes, result);
+        }
+        if(result.getError() == null)
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        return new ResponseEntity<>(result, result.getRows().isEmpty() ? HttpStatus.BAD_REQUEST : HttpStatus.MULTI_STATUS);
+    }
+
     @PutMapping("/{transactionId}")
     public ResponseEntity<Map<String, Boolean>> updateTransaction(HttpServletRequest request,
                                                                   @PathVariable("categoryId") Integer categoryId,
@@ -70,4 +202,64 @@ public class TransactionResource {
         map.put("success", true);
         return new ResponseEntity<>(map, HttpStatus.OK);
     }
+
+    private TransactionFilter parseFilter(Long from, Long to, String minAmount, String maxAmount, String sort) throws EtBadRequestException {
+        return new TransactionFilter(from, to,
+                minAmount == null ? null : Money.parseAmount(minAmount),
+                maxAmount == null ? null : Money.parseAmount(maxAmount),
+                TransactionFilter.Sort.parse(sort));
+    }
+
+    private TransactionList fetchTransactions(int userId, Integer categoryId, TransactionFilter filter) {
+        return filter.isEmpty()
+                ? transactionService.fetchAllTransactions(userId, categoryId)
+                : transactionService.fetchFilteredTransactions(userId, categoryId, filter);
+    }
+
+    private void importChunk(int userId, Integer categoryId, List<Transaction> chunk, List<Integer> chunkIndexes,
+                             TransactionImportResult result) {
+        if(chunk.isEmpty())
+            return;
+        List<Integer> transactionIds;
+        try {
+            transactionIds = transactionService.addTransactions(userId, categoryId, new ArrayList<>(chunk));
+        }catch (RuntimeException e) {
+            logger.warn("Import chunk of {} transactions failed for user {}", chunk.size(), userId, e);
+            stopImport(e instanceof EtBadRequestException || e instanceof EtResourceNotFoundException
+                    ? e.getMessage() : "Chunk could not be saved", chunkIndexes, result);
+            chunk.clear();
+            return;
+        }
+        for(int i = 0; i < transactionIds.size(); i++)
+            result.addCreated(chunkIndexes.get(i), transactionIds.get(i));
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    // The rows of the pending chunk were valid but are not committed
+    private void stopImport(String error, List<Integer> chunkIndexes, TransactionImportResult result) {
+        if(result.getError() == null)
+            result.setError(error);
+        for(Integer index : chunkIndexes)
+            result.addFailed(index, "Not imported: " + error);
+        chunkIndexes.clear();
+    }
+
+    private Transaction parseImportRow(JsonNode row) throws EtBadRequestException {
+        if(!row.isObject())
+            throw new EtBadRequestException("Row must be a JSON object");
+        JsonNode amountNode = row.get("amount");
+        JsonNode noteNode = row.get("note");
+        JsonNode transactionDateNode = row.get("transactionDate");
+        if(amountNode == null || !(amountNode.isNumber() || amountNode.isTextual()))
+            throw new EtBadRequestException("amount is required");
+        if(noteNode == null || !noteNode.isTextual())
+            throw new EtBadRequestException("note is required");
+        if(noteNode.asText().length() > 50)
+            throw new EtBadRequestException("note must be at most 50 characters");
+        if(transactionDateNode == null || !transactionDateNode.canConvertToLong())
+            throw new EtBadRequestException("transactionDate must be an epoch timestamp");
+        long amount = Money.parseAmount(amountNode.asText());
+        return new Transaction(0, 0, 0, amount, noteNode.asText(), transactionDateNode.asLong());
+    }
 }
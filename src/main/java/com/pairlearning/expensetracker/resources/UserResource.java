@@ -16,6 +16,7 @@ import org.springframework.web.bind.annotation.RestController;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/users")
@@ -25,21 +26,21 @@ public class UserResource {
     UserService userService;
 
     @PostMapping("/login")
-    public ResponseEntity<Map<String, String>> loginUser(@RequestBody Map<String, Object> userMap) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> loginUser(@RequestBody Map<String, Object> userMap) {
         String email = (String) userMap.get("email");
         String password = (String) userMap.get("password");
-        User user = userService.validateUser(email, password);
-        return new ResponseEntity<>(generateJWTToken(user), HttpStatus.OK);
+        return userService.validateUser(email, password)
+                .thenApply(user -> new ResponseEntity<>(generateJWTToken(user), HttpStatus.OK));
     }
 
     @PostMapping("/register")
-    public ResponseEntity<Map<String, String>> registerUser(@RequestBody Map<String, Object> userMap) {
+    public CompletableFuture<ResponseEntity<Map<String, String>>> registerUser(@RequestBody Map<String, Object> userMap) {
         String firstName = (String) userMap.get("firstName");
         String lastName = (String) userMap.get("lastName");
         String email = (String) userMap.get("email");
         String password = (String) userMap.get("password");
-        User user = userService.registerUser(firstName, lastName, email, password);
-        return new ResponseEntity<>(generateJWTToken(user), HttpStatus.OK);
+        return userService.registerUser(firstName, lastName, email, password)
+                .thenApply(user -> new ResponseEntity<>(generateJWTToken(user), HttpStatus.OK));
     }
 
     private Map<String, String> generateJWTToken(User user) {
@@ -0,0 +1,87 @@
+package com.pairlearning.expensetracker.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.repositories.CategoryRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Each user's category list, bounded in size and age. A write calls {@link #categoriesChanged(Integer)}, which
+ * drops the local entry once the write commits and publishes the change so {@link CategoryCacheListener} drops it
+ * on every other node. Entries also carry the data version read before they were loaded, so a reader that has
+ * seen a newer version never gets an older list while that invalidation is still on its way.
+ */
+public class CategoryCache implements MeterBinder {
+
+    private final Cache<Integer, VersionedCategories> cache;
+    private final CategoryRepository categoryRepository;
+
+    public CategoryCache(long maximumSize, long expireAfterWriteSeconds, CategoryRepository categoryRepository) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.categoryRepository = categoryRepository;
+    }
+
+    /**
+     * The user's categories as of at least {@code dataVersion}, which the caller read before calling.
+     */
+    public List<Category> getCategories(Integer userId, long dataVersion) {
+        VersionedCategories cached = cache.getIfPresent(userId);
+        if(cached != null && cached.version >= dataVersion)
+            return cached.categories;
+        List<Category> categories = Collections.unmodifiableList(categoryRepository.findAll(userId));
+        cache.put(userId, new VersionedCategories(dataVersion, categories));
+        return categories;
+    }
+
+    public void categoriesChanged(Integer userId) {
+        // Delivered by PostgreSQL only if and when the surrounding transaction commits
+        categoryRepository.publishChange(userId);
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(userId);
+            }
+        });
+    }
+
+    public void invalidate(Integer userId) {
+        cache.invalidate(userId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "userCategories", Collections.emptyList());
+    }
+
+    private static class VersionedCategories {
+
+        private final long version;
+        private final List<Category> categories;
+
+        private VersionedCategories(long version, List<Category> categories) {
+            this.version = version;
+            this.categories = categories;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.pairlearning.expensetracker.services;
+
+import com.pairlearning.expensetracker.Constants;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Listens on {@link Constants#CATEGORY_CHANGES_CHANNEL} over a connection of its own, outside the pool, and drops
+ * the cached categories of every user another node (or this one) reports as changed. Notifications sent while the
+ * connection is down are lost, so the whole cache is dropped each time it (re)connects.
+ */
+public class CategoryCacheListener implements SmartLifecycle, Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryCacheListener.class);
+
+    private static final int POLL_TIMEOUT_MS = 1000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private final CategoryCache categoryCache;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private volatile boolean running;
+    private Thread thread;
+
+    public CategoryCacheListener(CategoryCache categoryCache, String url, String username, String password) {
+        this.categoryCache = categoryCache;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        thread = new Thread(this, "category-cache-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        thread.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public void run() {
+        while(running) {
+            try (Connection connection = DriverManager.getConnection(url, username, password)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + Constants.CATEGORY_CHANGES_CHANNEL);
+                }
+                categoryCache.invalidateAll();
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                while(running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if(notifications == null)
+                        continue;
+                    for(PGNotification notification : notifications)
+                        invalidate(notification.getParameter());
+                }
+            }catch (SQLException e) {
+                if(!running)
+                    return;
+                logger.warn("Category cache listener disconnected, reconnecting in {} ms", RECONNECT_DELAY_MS, e);
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                }catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void invalidate(String userId) {
+        try {
+            categoryCache.invalidate(Integer.valueOf(userId));
+        }catch (NumberFormatException e) {
+            logger.warn("Ignoring category change notification with payload {}", userId);
+        }
+    }
+}
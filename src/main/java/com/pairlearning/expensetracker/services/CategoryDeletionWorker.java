@@ -0,0 +1,125 @@
+package com.pairlearning.expensetracker.services;
+
+import com.pairlearning.expensetracker.domain.CategoryDeletion;
+import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
+import com.pairlearning.expensetracker.repositories.CategoryDeletionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Removes categories in steps: {@link #start} hides the category at once, then its transactions are deleted
+ * {@code et.category-deletion.batch-size} at a time, each batch in its own transaction so no statement holds locks
+ * or WAL for a whole category. The job row is locked per batch, so the request that started a deletion and the
+ * scheduled sweep on any node can share the work safely. A job whose batch fails is retried by the sweep after
+ * {@code et.category-deletion.retry-delay-ms}, doubling per attempt, and marked failed after
+ * {@code et.category-deletion.max-attempts}; jobs behind it are claimed meanwhile.
+ */
+@Service
+public class CategoryDeletionWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryDeletionWorker.class);
+
+    @Autowired
+    CategoryDeletionRepository categoryDeletionRepository;
+
+    @Autowired(required = false)
+    CategoryCache categoryCache;
+
+    @Value("${et.category-deletion.batch-size}")
+    int batchSize;
+
+    @Value("${et.category-deletion.retry-delay-ms}")
+    long retryDelayMillis;
+
+    @Value("${et.category-deletion.max-attempts}")
+    int maxAttempts;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public CategoryDeletionWorker(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional
+    public CategoryDeletion start(Integer userId, Integer categoryId) throws EtResourceNotFoundException {
+        CategoryDeletion deletion = categoryDeletionRepository.create(userId, categoryId);
+        if(categoryCache != null)
+            categoryCache.categoriesChanged(userId);
+        return deletion;
+    }
+
+    /**
+     * Purges one job to completion, waiting out any batch another worker holds. A failed batch is left to the sweep
+     * like any other, so the caller gets the job's status rather than an error for a category already hidden.
+     */
+    public CategoryDeletion purge(CategoryDeletion deletion) {
+        try {
+            while(Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                CategoryDeletion locked = categoryDeletionRepository.lockPending(deletion.getJobId());
+                return locked != null && purgeBatch(locked);
+            })));
+        }catch (RuntimeException e) {
+            recordFailure(deletion, e);
+        }
+        return categoryDeletionRepository.findById(deletion.getUserId(), deletion.getJobId());
+    }
+
+    @Scheduled(fixedDelayString = "${et.category-deletion.interval-ms}",
+            initialDelayString = "${et.category-deletion.interval-ms}")
+    public void purgePending() {
+        AtomicReference<CategoryDeletion> claimed = new AtomicReference<>();
+        while(true) {
+            claimed.set(null);
+            try {
+                if(!Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    CategoryDeletion deletion = categoryDeletionRepository.claimPending();
+                    if(deletion == null)
+                        return false;
+                    claimed.set(deletion);
+                    purgeBatch(deletion);
+                    return true;
+                })))
+                    return;
+            }catch (RuntimeException e) {
+                CategoryDeletion deletion = claimed.get();
+                if(deletion == null)
+                    throw e;
+                recordFailure(deletion, e);
+            }
+        }
+    }
+
+    // In a transaction of its own, as the failed batch's was rolled back
+    private void recordFailure(CategoryDeletion deletion, RuntimeException cause) {
+        CategoryDeletion.Status outcome = transactionTemplate.execute(
+                status -> categoryDeletionRepository.recordFailure(deletion.getJobId(), retryDelayMillis, maxAttempts));
+        if(outcome == CategoryDeletion.Status.FAILED)
+            logger.error("Giving up deleting category {} of user {} after {} attempts",
+                    deletion.getCategoryId(), deletion.getUserId(), maxAttempts, cause);
+        else
+            logger.warn("Deleting category {} of user {} failed, retrying later",
+                    deletion.getCategoryId(), deletion.getUserId(), cause);
+    }
+
+    // Returns whether transactions may remain
+    private boolean purgeBatch(CategoryDeletion deletion) {
+        int deleted = categoryDeletionRepository.deleteTransactions(deletion.getCategoryId(), batchSize);
+        categoryDeletionRepository.recordProgress(deletion.getJobId(), deleted);
+        if(deleted == batchSize)
+            return true;
+        // Writes to a deleted category are rejected, so a short batch means none are left
+        categoryDeletionRepository.finish(deletion);
+        logger.info("Category {} of user {} deleted with {} transactions",
+                deletion.getCategoryId(), deletion.getUserId(), deletion.getTransactionsDeleted() + deleted);
+        return false;
+    }
+}
@@ -1,21 +1,29 @@
 package com.pairlearning.expensetracker.services;
 
 import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.domain.CategoryDeletion;
 import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
 import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface CategoryService {
 
-    List<Category> fetchAllCategories(Integer userId);
+    List<Category> fetchAllCategories(Integer userId, long dataVersion);
 
-    Category fetchCategoryById(Integer userId, Integer categoryId) throws EtResourceNotFoundException;
+    void streamAllCategories(Integer userId, Consumer<Category> consumer);
+
+    Category fetchCategoryById(Integer userId, Integer categoryId, long dataVersion) throws EtResourceNotFoundException;
 
     Category addCategory(Integer userId, String title, String description) throws EtBadRequestException;
 
     void updateCategory(Integer userId, Integer categoryId, Category category) throws EtBadRequestException;
 
-    void removeCategoryWithAllTransactions(Integer userId, Integer categoryId) throws EtResourceNotFoundException;
+    CategoryDeletion removeCategoryWithAllTransactions(Integer userId, Integer categoryId) throws EtResourceNotFoundException;
+
+    CategoryDeletion startCategoryDeletion(Integer userId, Integer categoryId) throws EtResourceNotFoundException;
+
+    CategoryDeletion fetchCategoryDeletion(Integer userId, Integer jobId) throws EtResourceNotFoundException;
 
 }
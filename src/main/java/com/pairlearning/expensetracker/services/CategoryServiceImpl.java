@@ -1,14 +1,18 @@
 package com.pairlearning.expensetracker.services;
 
 import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.domain.CategoryDeletion;
 import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
 import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
+import com.pairlearning.expensetracker.repositories.CategoryDeletionRepository;
 import com.pairlearning.expensetracker.repositories.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
@@ -17,30 +21,75 @@ public class CategoryServiceImpl implements CategoryService {
     @Autowired
     CategoryRepository categoryRepository;
 
+    @Autowired
+    CategoryDeletionRepository categoryDeletionRepository;
+
+    @Autowired
+    CategoryDeletionWorker categoryDeletionWorker;
+
+    @Autowired(required = false)
+    CategoryCache categoryCache;
+
     @Override
-    public List<Category> fetchAllCategories(Integer userId) {
-        return categoryRepository.findAll(userId);
+    @Transactional(readOnly = true)
+    public List<Category> fetchAllCategories(Integer userId, long dataVersion) {
+        if(categoryCache == null)
+            return categoryRepository.findAll(userId);
+        return categoryCache.getCategories(userId, dataVersion);
     }
 
     @Override
-    public Category fetchCategoryById(Integer userId, Integer categoryId) throws EtResourceNotFoundException {
+    @Transactional(readOnly = true)
+    public void streamAllCategories(Integer userId, Consumer<Category> consumer) {
+        categoryRepository.streamAll(userId, consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Category fetchCategoryById(Integer userId, Integer categoryId, long dataVersion) throws EtResourceNotFoundException {
+        if(categoryCache != null) {
+            for(Category category : categoryCache.getCategories(userId, dataVersion)) {
+                if(category.getCategoryId() == categoryId)
+                    return category;
+            }
+        }
         return categoryRepository.findById(userId, categoryId);
     }
 
     @Override
     public Category addCategory(Integer userId, String title, String description) throws EtBadRequestException {
-        int categoryId = categoryRepository.create(userId, title, description);
-        return categoryRepository.findById(userId, categoryId);
+        Category category = categoryRepository.create(userId, title, description);
+        categoriesChanged(userId);
+        return category;
     }
 
     @Override
     public void updateCategory(Integer userId, Integer categoryId, Category category) throws EtBadRequestException {
         categoryRepository.update(userId, categoryId, category);
+        categoriesChanged(userId);
     }
 
+    // Each step commits on its own, so this must not run inside a caller's transaction
     @Override
-    public void removeCategoryWithAllTransactions(Integer userId, Integer categoryId) throws EtResourceNotFoundException {
-        this.fetchCategoryById(userId, categoryId);
-        categoryRepository.removeById(userId, categoryId);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CategoryDeletion removeCategoryWithAllTransactions(Integer userId, Integer categoryId) throws EtResourceNotFoundException {
+        CategoryDeletion deletion = categoryDeletionWorker.start(userId, categoryId);
+        return categoryDeletionWorker.purge(deletion);
+    }
+
+    @Override
+    public CategoryDeletion startCategoryDeletion(Integer userId, Integer categoryId) throws EtResourceNotFoundException {
+        return categoryDeletionWorker.start(userId, categoryId);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CategoryDeletion fetchCategoryDeletion(Integer userId, Integer jobId) throws EtResourceNotFoundException {
+        return categoryDeletionRepository.findById(userId, jobId);
+    }
+
+    private void categoriesChanged(Integer userId) {
+        if(categoryCache != null)
+            categoryCache.categoriesChanged(userId);
     }
 }
@@ -0,0 +1,48 @@
+package com.pairlearning.expensetracker.services;
+
+import com.pairlearning.expensetracker.domain.CategoryTotalsDrift;
+import com.pairlearning.expensetracker.domain.Money;
+import com.pairlearning.expensetracker.repositories.CategoryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class CategoryTotalsReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryTotalsReconciler.class);
+
+    @Autowired
+    CategoryRepository categoryRepository;
+
+    @Autowired(required = false)
+    CategoryCache categoryCache;
+
+    @Scheduled(fixedDelayString = "${et.reconciliation.category-totals.interval-ms}",
+            initialDelayString = "${et.reconciliation.category-totals.interval-ms}")
+    @Transactional
+    public List<CategoryTotalsDrift> reconcile() {
+        List<CategoryTotalsDrift> drifts = new ArrayList<>();
+        // Candidates only: each is checked again under its category's lock before being repaired
+        for(CategoryTotalsDrift candidate : categoryRepository.findTotalsDrift()) {
+            CategoryTotalsDrift drift = categoryRepository.reconcileTotals(candidate.getCategoryId());
+            if(drift == null)
+                continue;
+            logger.warn("Category {} of user {} drifted: recorded total {} over {} transactions, actual total {} over {} transactions",
+                    drift.getCategoryId(), drift.getUserId(),
+                    Money.toDecimal(drift.getRecordedTotalExpense()), drift.getRecordedTransactionCount(),
+                    Money.toDecimal(drift.getActualTotalExpense()), drift.getActualTransactionCount());
+            if(categoryCache != null)
+                categoryCache.categoriesChanged(drift.getUserId());
+            drifts.add(drift);
+        }
+        logger.info("Category totals reconciliation finished, {} categories repaired", drifts.size());
+        return drifts;
+    }
+}
@@ -0,0 +1,7 @@
+package com.pairlearning.expensetracker.services;
+
+public interface DataVersionService {
+
+    long fetchDataVersion(Integer userId);
+
+}
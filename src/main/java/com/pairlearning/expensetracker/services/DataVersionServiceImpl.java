@@ -0,0 +1,24 @@
+package com.pairlearning.expensetracker.services;
+
+import com.pairlearning.expensetracker.repositories.DataVersionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Reads the version outside any transaction, so it comes from the primary: a lagging replica would hand out an
+ * ETag for data the client has already seen changed, and the listing behind it would be answered 304.
+ */
+@Service
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DataVersionServiceImpl implements DataVersionService {
+
+    @Autowired
+    DataVersionRepository dataVersionRepository;
+
+    @Override
+    public long fetchDataVersion(Integer userId) {
+        return dataVersionRepository.findByUserId(userId);
+    }
+}
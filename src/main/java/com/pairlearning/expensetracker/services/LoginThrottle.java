@@ -0,0 +1,67 @@
+package com.pairlearning.expensetracker.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets for login and registration attempts, one per key (an email or a client address), checked before
+ * any password hashing. Each bucket holds {@code capacity} attempts and refills at {@code refillPerMinute}. Buckets
+ * live in a bounded table and are dropped once idle long enough to be full again.
+ */
+public class LoginThrottle {
+
+    private final long capacity;
+    private final long refillIntervalNanos;
+    private final Ticker ticker;
+    private final Cache<String, AtomicLong> buckets;
+    private final Counter throttledCounter;
+
+    public LoginThrottle(String name, long maximumSize, long capacity, long refillPerMinute, MeterRegistry meterRegistry) {
+        this(name, maximumSize, capacity, refillPerMinute, Ticker.systemTicker(), meterRegistry);
+    }
+
+    public LoginThrottle(String name, long maximumSize, long capacity, long refillPerMinute, Ticker ticker, MeterRegistry meterRegistry) {
+        this.capacity = capacity;
+        this.refillIntervalNanos = TimeUnit.MINUTES.toNanos(1) / refillPerMinute;
+        this.ticker = ticker;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(capacity * refillIntervalNanos, TimeUnit.NANOSECONDS)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.throttledCounter = Counter.builder("et.login.throttled")
+                .description("Login and registration attempts rejected before password hashing")
+                .tag("key", name)
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, buckets, "loginThrottle", Tags.of("key", name));
+    }
+
+    /**
+     * Takes one attempt from the key's bucket, or returns false if it is empty.
+     */
+    public boolean tryAcquire(String key) {
+        // The bucket is kept as the time at which it will be full again; one attempt moves that time forward by
+        // one refill interval, and an attempt that would push it past a full bucket's worth is refused.
+        AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(ticker.read()));
+        while(true) {
+            long now = ticker.read();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + refillIntervalNanos;
+            if(next - now > capacity * refillIntervalNanos) {
+                throttledCounter.increment();
+                return false;
+            }
+            if(fullAt.compareAndSet(current, next))
+                return true;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.pairlearning.expensetracker.services;
+
+import com.pairlearning.expensetracker.exceptions.EtServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.mindrot.jbcrypt.BCrypt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+@Component
+public class PasswordHasher {
+
+    private static final int LOG_ROUNDS = 10;
+
+    private final ThreadPoolExecutor executor;
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHasher(@Value("${et.bcrypt.pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int poolSize,
+                          @Value("${et.bcrypt.queue-capacity}") int queueCapacity,
+                          MeterRegistry meterRegistry) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("et.bcrypt.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("et.bcrypt.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        this.hashTimer = Timer.builder("et.bcrypt.duration").tag("operation", "hash").register(meterRegistry);
+        this.verifyTimer = Timer.builder("et.bcrypt.duration").tag("operation", "verify").register(meterRegistry);
+        this.rejectedCounter = Counter.builder("et.bcrypt.rejected").register(meterRegistry);
+    }
+
+    public CompletableFuture<String> hash(String password) throws EtServiceUnavailableException {
+        return submit(() -> hashTimer.record(() -> BCrypt.hashpw(password, BCrypt.gensalt(LOG_ROUNDS))));
+    }
+
+    public CompletableFuture<Boolean> verify(String password, String hashedPassword) throws EtServiceUnavailableException {
+        return submit(() -> verifyTimer.record(() -> BCrypt.checkpw(password, hashedPassword)));
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) throws EtServiceUnavailableException {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        }catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new EtServiceUnavailableException("Server is busy, please retry");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,12 @@
+package com.pairlearning.expensetracker.services;
+
+import com.pairlearning.expensetracker.domain.SpendRollup;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+
+import java.util.List;
+
+public interface ReportService {
+
+    List<SpendRollup> fetchSpend(Integer userId, SpendRollup.Granularity granularity, Long from, Long to) throws EtBadRequestException;
+
+}
@@ -0,0 +1,29 @@
+package com.pairlearning.expensetracker.services;
+
+import com.pairlearning.expensetracker.domain.SpendRollup;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.repositories.ReportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Service
+@Transactional
+public class ReportServiceImpl implements ReportService {
+
+    @Autowired
+    ReportRepository reportRepository;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<SpendRollup> fetchSpend(Integer userId, SpendRollup.Granularity granularity, Long from, Long to) throws EtBadRequestException {
+        if(from != null && to != null && from >= to)
+            throw new EtBadRequestException("from must be before to");
+        // The bucket holding from is included whole; buckets starting at or after to are not
+        long fromBucket = from == null ? Long.MIN_VALUE : granularity.bucketOf(from);
+        long toBucket = to == null ? Long.MAX_VALUE : to;
+        return reportRepository.findSpend(userId, granularity, fromBucket, toBucket);
+    }
+}
@@ -1,18 +1,30 @@
 package com.pairlearning.expensetracker.services;
 
 import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import com.pairlearning.expensetracker.domain.TransactionList;
+import com.pairlearning.expensetracker.domain.TransactionPage;
 import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
 import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TransactionService {
 
-    List<Transaction> fetchAllTransactions(Integer userId, Integer categoryId);
+    TransactionList fetchAllTransactions(Integer userId, Integer categoryId);
+
+    TransactionList fetchFilteredTransactions(Integer userId, Integer categoryId, TransactionFilter filter) throws EtBadRequestException;
+
+    TransactionPage fetchTransactionPage(Integer userId, Integer categoryId, String cursor, int limit) throws EtBadRequestException;
+
+    void streamAllTransactions(Integer userId, Integer categoryId, Consumer<Transaction> consumer);
 
     Transaction fetchTransactionById(Integer userId, Integer categoryId, Integer transactionId) throws EtResourceNotFoundException;
 
-    Transaction addTransaction(Integer userId, Integer categoryId, Double amount, String note, Long transactionDate) throws EtBadRequestException;
+    Transaction addTransaction(Integer userId, Integer categoryId, long amount, String note, Long transactionDate) throws EtBadRequestException;
+
+    List<Integer> addTransactions(Integer userId, Integer categoryId, List<Transaction> transactions) throws EtBadRequestException;
 
     void updateTransaction(Integer userId, Integer categoryId, Integer transactionId, Transaction transaction) throws EtBadRequestException;
 
@@ -1,14 +1,23 @@
 package com.pairlearning.expensetracker.services;
 
+import com.pairlearning.expensetracker.Constants;
 import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import com.pairlearning.expensetracker.domain.TransactionList;
+import com.pairlearning.expensetracker.domain.TransactionPage;
 import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
 import com.pairlearning.expensetracker.exceptions.EtResourceNotFoundException;
 import com.pairlearning.expensetracker.repositories.TransactionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @Transactional
@@ -17,29 +26,113 @@ public class TransactionServiceImpl implements TransactionService {
     @Autowired
     TransactionRepository transactionRepository;
 
+    @Autowired(required = false)
+    CategoryCache categoryCache;
+
+    @Autowired(required = false)
+    TransactionWriteBuffer transactionWriteBuffer;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
     @Override
-    public List<Transaction> fetchAllTransactions(Integer userId, Integer categoryId) {
+    @Transactional(readOnly = true)
+    public TransactionList fetchAllTransactions(Integer userId, Integer categoryId) {
         return transactionRepository.findAll(userId, categoryId);
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public TransactionList fetchFilteredTransactions(Integer userId, Integer categoryId, TransactionFilter filter) throws EtBadRequestException {
+        filter.validate();
+        return transactionRepository.findFiltered(userId, categoryId, filter);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TransactionPage fetchTransactionPage(Integer userId, Integer categoryId, String cursor, int limit) throws EtBadRequestException {
+        if(limit < 1)
+            throw new EtBadRequestException("Page limit must be positive");
+        int pageSize = Math.min(limit, Constants.TRANSACTION_PAGE_MAX_SIZE);
+        Long afterTransactionDate = null;
+        Integer afterTransactionId = null;
+        if(cursor != null) {
+            long[] position = decodeCursor(cursor);
+            afterTransactionDate = position[0];
+            afterTransactionId = (int) position[1];
+        }
+        List<Transaction> transactions = transactionRepository.findPage(userId, categoryId, afterTransactionDate, afterTransactionId, pageSize + 1);
+        String next = null;
+        if(transactions.size() > pageSize) {
+            transactions = transactions.subList(0, pageSize);
+            next = encodeCursor(transactions.get(pageSize - 1));
+        }
+        return new TransactionPage(transactions, next);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllTransactions(Integer userId, Integer categoryId, Consumer<Transaction> consumer) {
+        transactionRepository.streamAll(userId, categoryId, consumer);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Transaction fetchTransactionById(Integer userId, Integer categoryId, Integer transactionId) throws EtResourceNotFoundException {
         return transactionRepository.findById(userId, categoryId, transactionId);
     }
 
+    // Buffered rows commit on the writer thread, so waiting for one must not hold a transaction and its connection.
+    // The writer publishes the category change in the group's transaction.
     @Override
-    public Transaction addTransaction(Integer userId, Integer categoryId, Double amount, String note, Long transactionDate) throws EtBadRequestException {
-        int transactionId = transactionRepository.create(userId, categoryId, amount, note, transactionDate);
-        return transactionRepository.findById(userId, categoryId, transactionId);
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Transaction addTransaction(Integer userId, Integer categoryId, long amount, String note, Long transactionDate) throws EtBadRequestException {
+        if(transactionWriteBuffer != null)
+            return transactionWriteBuffer.write(userId, categoryId, amount, note, transactionDate);
+        return transactionTemplate.execute(status -> {
+            Transaction transaction = transactionRepository.create(userId, categoryId, amount, note, transactionDate);
+            categoriesChanged(userId);
+            return transaction;
+        });
+    }
+
+    @Override
+    public List<Integer> addTransactions(Integer userId, Integer categoryId, List<Transaction> transactions) throws EtBadRequestException {
+        List<Integer> transactionIds = transactionRepository.createBatch(userId, categoryId, transactions);
+        categoriesChanged(userId);
+        return transactionIds;
     }
 
     @Override
     public void updateTransaction(Integer userId, Integer categoryId, Integer transactionId, Transaction transaction) throws EtBadRequestException {
         transactionRepository.update(userId, categoryId, transactionId, transaction);
+        categoriesChanged(userId);
     }
 
     @Override
     public void removeTransaction(Integer userId, Integer categoryId, Integer transactionId) throws EtResourceNotFoundException {
         transactionRepository.removeById(userId, categoryId, transactionId);
+        categoriesChanged(userId);
+    }
+
+    // Category totals and counts move with every transaction write
+    private void categoriesChanged(Integer userId) {
+        if(categoryCache != null)
+            categoryCache.categoriesChanged(userId);
+    }
+
+    private String encodeCursor(Transaction transaction) {
+        String position = transaction.getTransactionDate() + ":" + transaction.getTransactionId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long[] decodeCursor(String cursor) throws EtBadRequestException {
+        try {
+            String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = position.split(":");
+            return new long[]{Long.parseLong(parts[0]), Integer.parseInt(parts[1])};
+        }catch (Exception e) {
+            throw new EtBadRequestException("Invalid cursor");
+        }
     }
 }
@@ -0,0 +1,212 @@
+package com.pairlearning.expensetracker.services;
+
+import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.exceptions.EtServiceUnavailableException;
+import com.pairlearning.expensetracker.repositories.RoutingDataSource;
+import com.pairlearning.expensetracker.repositories.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Group commit for single transaction inserts. Callers queue their row and wait while one writer thread inserts up
+ * to {@code maxBatchSize} rows, or whatever arrived within {@code maxDelayMillis} of the first, in one database
+ * transaction, so concurrent requests share a commit instead of paying for one each. A caller returns only once the
+ * commit holding its row is done, or after {@code waitTimeoutMillis} with a 503. If a group fails on the data of
+ * one of its rows, the rows are retried one transaction each so the bad row fails only its own request; any other
+ * failure, such as no connection, fails the whole group with 503 at once.
+ */
+public class TransactionWriteBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionWriteBuffer.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final RoutingDataSource routingDataSource;
+    private final CategoryCache categoryCache;
+    private final BlockingQueue<PendingTransaction> queue;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long waitTimeoutMillis;
+    private final DistributionSummary groupSize;
+    private final Counter rejectedCounter;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    /**
+     * @param routingDataSource set when reads go to a replica, so buffered writes still pin their users to the primary
+     * @param categoryCache set when category lists are cached; their totals move with every insert
+     */
+    public TransactionWriteBuffer(TransactionRepository transactionRepository, PlatformTransactionManager transactionManager,
+                                  RoutingDataSource routingDataSource, CategoryCache categoryCache,
+                                  int capacity, int maxBatchSize, long maxDelayMillis, long waitTimeoutMillis,
+                                  MeterRegistry meterRegistry) {
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.routingDataSource = routingDataSource;
+        this.categoryCache = categoryCache;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.waitTimeoutMillis = waitTimeoutMillis;
+        Gauge.builder("et.transaction-buffer.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        this.groupSize = DistributionSummary.builder("et.transaction-buffer.group.size")
+                .description("Rows inserted per group commit")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("et.transaction-buffer.rejected").register(meterRegistry);
+        this.writer = new Thread(this::run, "transaction-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public Transaction write(Integer userId, Integer categoryId, long amount, String note, Long transactionDate)
+            throws EtBadRequestException, EtServiceUnavailableException {
+        if(transactionDate == null)
+            throw new EtBadRequestException("Invalid request");
+        PendingTransaction pending = new PendingTransaction(new Transaction(0, categoryId, userId, amount, note, transactionDate));
+        if(!running || !queue.offer(pending)) {
+            rejectedCounter.increment();
+            throw new EtServiceUnavailableException("Server is busy, please retry");
+        }
+        try {
+            return pending.result.get(waitTimeoutMillis, TimeUnit.MILLISECONDS);
+        }catch (ExecutionException e) {
+            throw (RuntimeException) e.getCause();
+        }catch (TimeoutException e) {
+            // Still queued means it will never be written; otherwise the writer has it and it may yet commit
+            if(queue.remove(pending))
+                throw new EtServiceUnavailableException("Server is busy, please retry");
+            throw new EtServiceUnavailableException("Write timed out and may still complete; retry with an Idempotency-Key");
+        }catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EtServiceUnavailableException("Server is busy, please retry");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        writer.join();
+        // Rows that slipped in after the writer's last look
+        PendingTransaction pending;
+        while((pending = queue.poll()) != null)
+            pending.result.completeExceptionally(new EtServiceUnavailableException("Server is shutting down, please retry"));
+    }
+
+    private void run() {
+        List<PendingTransaction> group = new ArrayList<>(maxBatchSize);
+        while(running || !queue.isEmpty()) {
+            try {
+                PendingTransaction first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if(first == null)
+                    continue;
+                group.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while(group.size() < maxBatchSize) {
+                    queue.drainTo(group, maxBatchSize - group.size());
+                    long remaining = deadline - System.nanoTime();
+                    if(group.size() == maxBatchSize || remaining <= 0)
+                        break;
+                    PendingTransaction next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if(next == null)
+                        break;
+                    group.add(next);
+                }
+            }catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+            if(!group.isEmpty())
+                flush(group);
+            group.clear();
+        }
+    }
+
+    private void flush(List<PendingTransaction> group) {
+        groupSize.record(group.size());
+        List<Transaction> rows = group.stream().map(pending -> pending.transaction).collect(Collectors.toList());
+        List<Transaction> created;
+        try {
+            created = transactionTemplate.execute(status -> {
+                List<Transaction> inserted = transactionRepository.createGroup(rows);
+                categoriesChanged(inserted);
+                return inserted;
+            });
+        }catch (RuntimeException e) {
+            if(!isDataError(e)) {
+                logger.warn("Group insert of {} transactions failed", group.size(), e);
+                for(PendingTransaction pending : group)
+                    pending.result.completeExceptionally(new EtServiceUnavailableException("Server is busy, please retry"));
+                return;
+            }
+            if(group.size() == 1) {
+                group.get(0).result.completeExceptionally(new EtBadRequestException("Invalid request"));
+                return;
+            }
+            logger.warn("Group insert of {} transactions failed, retrying them one at a time", group.size(), e);
+            for(PendingTransaction pending : group)
+                flush(Collections.singletonList(pending));
+            return;
+        }
+        for(int i = 0; i < group.size(); i++) {
+            Transaction transaction = created.get(i);
+            if(transaction == null) {
+                group.get(i).result.completeExceptionally(new EtBadRequestException("Invalid request"));
+                continue;
+            }
+            // Before the caller returns, so its next read already goes to the primary
+            if(routingDataSource != null)
+                routingDataSource.markWritten(transaction.getUserId());
+            group.get(i).result.complete(transaction);
+        }
+    }
+
+    // Failures caused by a row's values; anything else, e.g. no connection or a timeout, would fail every retry too
+    private static boolean isDataError(RuntimeException e) {
+        return e instanceof DataIntegrityViolationException || e instanceof ArithmeticException || e instanceof EtBadRequestException;
+    }
+
+    // Inside the group's transaction, so the change notice commits with the rows and costs no commit of its own
+    private void categoriesChanged(List<Transaction> inserted) {
+        if(categoryCache == null)
+            return;
+        SortedSet<Integer> userIds = new TreeSet<>();
+        for(Transaction transaction : inserted)
+            if(transaction != null)
+                userIds.add(transaction.getUserId());
+        userIds.forEach(categoryCache::categoriesChanged);
+    }
+
+    private static class PendingTransaction {
+
+        private final Transaction transaction;
+        private final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+        private PendingTransaction(Transaction transaction) {
+            this.transaction = transaction;
+        }
+    }
+}
@@ -3,10 +3,12 @@ package com.pairlearning.expensetracker.services;
 import com.pairlearning.expensetracker.domain.User;
 import com.pairlearning.expensetracker.exceptions.EtAuthException;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface UserService {
 
-    User validateUser(String email, String password) throws EtAuthException;
+    CompletableFuture<User> validateUser(String email, String password) throws EtAuthException;
 
-    User registerUser(String firstName, String lastName, String email, String password) throws EtAuthException;
+    CompletableFuture<User> registerUser(String firstName, String lastName, String email, String password) throws EtAuthException;
 
 }
@@ -1,41 +1,113 @@
 package com.pairlearning.expensetracker.services;
 
+import com.pairlearning.expensetracker.Constants;
 import com.pairlearning.expensetracker.domain.User;
 import com.pairlearning.expensetracker.exceptions.EtAuthException;
+import com.pairlearning.expensetracker.exceptions.EtServiceUnavailableException;
+import com.pairlearning.expensetracker.exceptions.EtTooManyRequestsException;
 import com.pairlearning.expensetracker.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.regex.Pattern;
 
 @Service
 @Transactional
 public class UserServiceImpl implements UserService {
 
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^(.+)@(.+)$");
+
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    PasswordHasher passwordHasher;
+
+    @Autowired(required = false)
+    @Qualifier("emailLoginThrottle")
+    LoginThrottle emailLoginThrottle;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    @Qualifier("registrationInsertExecutor")
+    Executor insertExecutor;
+
     @Override
-    public User validateUser(String email, String password) throws EtAuthException {
+    @Transactional(readOnly = true)
+    public CompletableFuture<User> validateUser(String email, String password) throws EtAuthException {
         if(email != null) email = email.toLowerCase();
-        return userRepository.findByEmailAndPassword(email, password);
+        if(password == null)
+            throw new EtAuthException("Invalid email/password");
+        throttle(email);
+        User user = userRepository.findByEmail(email);
+        return passwordHasher.verify(password, user.getPassword()).thenApply(matches -> {
+            if(!matches)
+                throw new EtAuthException("Invalid email/password");
+            return user;
+        });
     }
 
+    // Nothing here touches the database before the hash is done, so no transaction is opened up front
     @Override
-    public User registerUser(String firstName, String lastName, String email, String password) throws EtAuthException {
-        Pattern pattern = Pattern.compile("^(.+)@(.+)$");
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public CompletableFuture<User> registerUser(String firstName, String lastName, String email, String password) throws EtAuthException {
         if(email != null) email = email.toLowerCase();
-        if(!pattern.matcher(email).matches())
+        if(email == null || email.length() > Constants.USER_EMAIL_MAX_LENGTH || !EMAIL_PATTERN.matcher(email).matches())
             throw new EtAuthException("Invalid email format");
-        Integer count = userRepository.getCountByEmail(email);
-        if(count > 0)
-            throw new EtAuthException("Email already in use");
-        Integer userId = userRepository.create(firstName, lastName, email, password);
-        return userRepository.findById(userId);
+        if(firstName == null || firstName.isEmpty() || firstName.length() > Constants.USER_NAME_MAX_LENGTH
+                || lastName == null || lastName.isEmpty() || lastName.length() > Constants.USER_NAME_MAX_LENGTH)
+            throw new EtAuthException("Invalid details. Failed to create account");
+        if(password == null || password.isEmpty())
+            throw new EtAuthException("Password is required");
+        throttle(email);
+        // Everything that can be rejected without the database is, before paying for the hash; a taken email is
+        // caught by the insert itself. The insert moves off the bcrypt pool so database waits never hold a hashing thread.
+        String normalizedEmail = email;
+        return passwordHasher.hash(password)
+                .thenCompose(hashedPassword -> insert(firstName, lastName, normalizedEmail, hashedPassword));
+    }
+
+    private CompletableFuture<User> insert(String firstName, String lastName, String email, String hashedPassword) throws EtServiceUnavailableException {
+        try {
+            return CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status ->
+                    userRepository.create(firstName, lastName, email, hashedPassword)), insertExecutor);
+        }catch (RejectedExecutionException e) {
+            throw new EtServiceUnavailableException("Server is busy, please retry");
+        }
+    }
+
+    // Checked before the user lookup, so a throttled attempt costs neither a query nor a hash
+    private void throttle(String email) throws EtTooManyRequestsException {
+        if(emailLoginThrottle != null && email != null && !emailLoginThrottle.tryAcquire(email))
+            throw new EtTooManyRequestsException("Too many attempts, please retry later");
     }
 
     public void setUserRepository(UserRepository userRepository) {
         this.userRepository = userRepository;
     }
+
+    public void setPasswordHasher(PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
+    }
+
+    public void setEmailLoginThrottle(LoginThrottle emailLoginThrottle) {
+        this.emailLoginThrottle = emailLoginThrottle;
+    }
+
+    public void setTransactionTemplate(TransactionTemplate transactionTemplate) {
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public void setInsertExecutor(Executor insertExecutor) {
+        this.insertExecutor = insertExecutor;
+    }
 }
@@ -1,3 +1,8 @@
+--liquibase formatted sql
+
+--changeset expensetracker:001-initial-schema
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 select count(*) from information_schema.tables where table_name = 'et_users'
 create table et_users(
 user_id integer primary key not null,
 first_name varchar(20) not null,
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset expensetracker:002-category-totals
+--preconditions onFail:MARK_RAN
+--precondition-sql-check expectedResult:0 select count(*) from information_schema.columns where table_name = 'et_categories' and column_name = 'total_expense'
+alter table et_categories add column total_expense numeric(12,2) not null default 0;
+alter table et_categories add column transaction_count integer not null default 0;
+
+update et_categories c set total_expense = t.total_expense, transaction_count = t.transaction_count
+from (select category_id, sum(amount) total_expense, count(*) transaction_count
+      from et_transactions group by category_id) t
+where c.category_id = t.category_id;
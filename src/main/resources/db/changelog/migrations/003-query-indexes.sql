@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset expensetracker:003-transactions-listing-index runInTransaction:false
+create index concurrently if not exists et_transactions_user_category_date_idx
+on et_transactions(user_id, category_id, transaction_date, transaction_id);
+
+--changeset expensetracker:003-transactions-category-index runInTransaction:false
+create index concurrently if not exists et_transactions_category_idx on et_transactions(category_id);
+
+--changeset expensetracker:003-categories-user-index runInTransaction:false
+create index concurrently if not exists et_categories_user_idx on et_categories(user_id);
+
+--changeset expensetracker:003-users-email-unique-index runInTransaction:false
+create unique index concurrently if not exists et_users_email_lower_idx on et_users(lower(email));
@@ -0,0 +1,27 @@
+--liquibase formatted sql
+
+--changeset expensetracker:004-spend-rollups
+create table et_spend_rollups(
+user_id integer not null,
+granularity varchar(5) not null,
+bucket bigint not null,
+category_id integer not null,
+total_expense numeric(14,2) not null,
+transaction_count integer not null,
+primary key (user_id, granularity, bucket, category_id)
+);
+alter table et_spend_rollups add constraint rollup_cat_fk
+foreign key (category_id) references et_categories(category_id);
+alter table et_spend_rollups add constraint rollup_users_fk
+foreign key (user_id) references et_users(user_id);
+
+-- Buckets start at 00:00 UTC on the first day of the month / on Monday, as SpendRollup.Granularity computes them
+insert into et_spend_rollups (user_id, granularity, bucket, category_id, total_expense, transaction_count)
+select user_id, 'MONTH', cast(extract(epoch from date_trunc('month', to_timestamp(transaction_date / 1000.0) at time zone 'UTC')) * 1000 as bigint) bucket,
+       category_id, sum(amount), count(*)
+from et_transactions group by user_id, bucket, category_id;
+
+insert into et_spend_rollups (user_id, granularity, bucket, category_id, total_expense, transaction_count)
+select user_id, 'WEEK', cast(extract(epoch from date_trunc('week', to_timestamp(transaction_date / 1000.0) at time zone 'UTC')) * 1000 as bigint) bucket,
+       category_id, sum(amount), count(*)
+from et_transactions group by user_id, bucket, category_id;
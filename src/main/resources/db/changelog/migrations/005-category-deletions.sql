@@ -0,0 +1,21 @@
+--liquibase formatted sql
+
+--changeset expensetracker:005-category-deletions
+alter table et_categories add column deleted boolean not null default false;
+
+create table et_category_deletions(
+job_id integer primary key not null,
+user_id integer not null,
+category_id integer not null,
+status varchar(10) not null,
+transactions_total integer not null,
+transactions_deleted integer not null default 0,
+created_at bigint not null,
+updated_at bigint not null
+);
+alter table et_category_deletions add constraint deletion_users_fk
+foreign key (user_id) references et_users(user_id);
+
+create sequence et_category_deletions_seq increment 1 start 1;
+
+create index et_category_deletions_pending_idx on et_category_deletions(job_id) where status = 'PENDING';
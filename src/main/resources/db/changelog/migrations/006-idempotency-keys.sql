@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset expensetracker:006-idempotency-keys
+create table et_idempotency_keys(
+idempotency_key varchar(400) primary key not null,
+fingerprint varchar(64) not null,
+status integer not null,
+content_type varchar(100),
+body bytea,
+created_at bigint not null
+);
+create index et_idempotency_keys_created_idx on et_idempotency_keys(created_at);
@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset expensetracker:007-sequence-id-blocks
+-- Each NEXTVAL now reserves the block (value - 50, value] for the caller; see SequenceIdAllocator.
+-- Marking the current value as called keeps the first block above every id handed out so far.
+select setval('et_users_seq', (select last_value from et_users_seq), true);
+select setval('et_categories_seq', (select last_value from et_categories_seq), true);
+select setval('et_transactions_seq', (select last_value from et_transactions_seq), true);
+alter sequence et_users_seq increment by 50;
+alter sequence et_categories_seq increment by 50;
+alter sequence et_transactions_seq increment by 50;
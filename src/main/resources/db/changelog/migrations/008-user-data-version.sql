@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset expensetracker:008-user-data-version
+-- Bumped by every category and transaction write of the user; served as the ETag of their listings
+alter table et_users add column data_version bigint not null default 0;
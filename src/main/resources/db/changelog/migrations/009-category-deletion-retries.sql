@@ -0,0 +1,9 @@
+--liquibase formatted sql
+
+--changeset expensetracker:009-category-deletion-retries
+-- A failing job waits out its backoff instead of holding the head of the queue
+alter table et_category_deletions add column attempts integer not null default 0;
+alter table et_category_deletions add column next_attempt_at bigint not null default 0;
+
+drop index et_category_deletions_pending_idx;
+create index et_category_deletions_pending_idx on et_category_deletions(next_attempt_at, job_id) where status = 'PENDING';
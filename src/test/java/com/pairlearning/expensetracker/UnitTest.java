@@ -1,6 +1,20 @@
 package com.pairlearning.expensetracker;
 
 import com.pairlearning.expensetracker.unittests.AuthFilterTest;
+import com.pairlearning.expensetracker.unittests.CategoryCacheTest;
+import com.pairlearning.expensetracker.unittests.CategoryDeletionWorkerTest;
+import com.pairlearning.expensetracker.unittests.CategoryTotalsReconcilerTest;
+import com.pairlearning.expensetracker.unittests.ConcurrencyLimitFilterTest;
+import com.pairlearning.expensetracker.unittests.IdempotencyFilterTest;
+import com.pairlearning.expensetracker.unittests.LoginThrottleTest;
+import com.pairlearning.expensetracker.unittests.MeteredJdbcTemplateTest;
+import com.pairlearning.expensetracker.unittests.ReactiveAuthFilterTest;
+import com.pairlearning.expensetracker.unittests.ReportServiceImplTest;
+import com.pairlearning.expensetracker.unittests.RoutingDataSourceTest;
+import com.pairlearning.expensetracker.unittests.SequenceIdAllocatorTest;
+import com.pairlearning.expensetracker.unittests.TransactionListTest;
+import com.pairlearning.expensetracker.unittests.TransactionServiceImplTest;
+import com.pairlearning.expensetracker.unittests.TransactionWriteBufferTest;
 import com.pairlearning.expensetracker.unittests.UserRepositoryImplTest;
 import com.pairlearning.expensetracker.unittests.UserResourceTest;
 import com.pairlearning.expensetracker.unittests.UserServiceImplTest;
@@ -14,7 +28,21 @@ import org.springframework.boot.test.context.SpringBootTest;
 		AuthFilterTest.class,
 		UserRepositoryImplTest.class,
 		UserServiceImplTest.class,
-		UserResourceTest.class
+		UserResourceTest.class,
+		TransactionServiceImplTest.class,
+		CategoryTotalsReconcilerTest.class,
+		MeteredJdbcTemplateTest.class,
+		TransactionListTest.class,
+		ReportServiceImplTest.class,
+		CategoryCacheTest.class,
+		ConcurrencyLimitFilterTest.class,
+		ReactiveAuthFilterTest.class,
+		RoutingDataSourceTest.class,
+		CategoryDeletionWorkerTest.class,
+		IdempotencyFilterTest.class,
+		LoginThrottleTest.class,
+		SequenceIdAllocatorTest.class,
+		TransactionWriteBufferTest.class
 })
 public class UnitTest
 {
@@ -0,0 +1,55 @@
+package com.pairlearning.expensetracker.benchmarks;
+
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.filters.AuthFilter;
+import com.pairlearning.expensetracker.filters.TokenCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthFilterBenchmark {
+
+    @Param({"true", "false"})
+    public boolean tokenCacheEnabled;
+
+    private AuthFilter authFilter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+    private FilterChain chain;
+
+    @Setup
+    public void setup() {
+        authFilter = new AuthFilter(tokenCacheEnabled ? new TokenCache(10000) : null);
+        long timestamp = System.currentTimeMillis();
+        String token = Jwts.builder().signWith(SignatureAlgorithm.HS256, Constants.API_SECRET_KEY)
+                .setIssuedAt(new Date(timestamp))
+                .setExpiration(new Date(timestamp + Constants.TOKEN_VALIDITY))
+                .claim("userId", 123)
+                .claim("email", "john.doe@example.com")
+                .claim("firstName", "John")
+                .claim("lastName", "Doe")
+                .compact();
+        request = new MockHttpServletRequest("GET", "/api/categories");
+        request.addHeader("Authorization", "Bearer " + token);
+        response = new MockHttpServletResponse();
+        chain = (servletRequest, servletResponse) -> { };
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        authFilter.doFilter(request, response, chain);
+        return request.getAttribute("userId");
+    }
+}
@@ -0,0 +1,60 @@
+package com.pairlearning.expensetracker.benchmarks;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Serves every query from a fixed in-memory result set so the repositories' row mappers can be
+ * measured without a database round trip.
+ */
+public class InMemoryJdbcTemplate extends JdbcTemplate {
+
+    private final CachedRowSet resultSet;
+
+    public InMemoryJdbcTemplate(CachedRowSet resultSet) {
+        this.resultSet = resultSet;
+    }
+
+    @Override
+    public <T> T query(String sql, Object[] args, ResultSetExtractor<T> rse) throws DataAccessException {
+        try {
+            resultSet.beforeFirst();
+            return rse.extractData(resultSet);
+        }catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static CachedRowSet resultSet(String[] columns, int[] types, List<Object[]> rows) throws SQLException {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(columns.length);
+        for(int i = 0; i < columns.length; i++) {
+            metaData.setColumnName(i + 1, columns[i]);
+            metaData.setColumnLabel(i + 1, columns[i]);
+            metaData.setColumnType(i + 1, types[i]);
+        }
+        CachedRowSet resultSet = RowSetProvider.newFactory().createCachedRowSet();
+        resultSet.setMetaData(metaData);
+        for(Object[] row : rows) {
+            resultSet.moveToInsertRow();
+            for(int i = 0; i < row.length; i++) {
+                if(types[i] == Types.VARCHAR)
+                    resultSet.updateString(i + 1, (String) row[i]);
+                else
+                    resultSet.updateObject(i + 1, row[i]);
+            }
+            resultSet.insertRow();
+            resultSet.moveToCurrentRow();
+        }
+        resultSet.beforeFirst();
+        return resultSet;
+    }
+}
@@ -0,0 +1,60 @@
+package com.pairlearning.expensetracker.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionList;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"1000"})
+    public int transactionRows;
+
+    @Param({"20"})
+    public int categoryRows;
+
+    private ObjectMapper objectMapper;
+    private List<Transaction> transactions;
+    private TransactionList transactionList;
+    private List<Category> categories;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        transactions = new ArrayList<>();
+        for(int i = 0; i < transactionRows; i++)
+            transactions.add(new Transaction(i, 1, 1, 1234, "note " + i, 1600000000000L + i));
+        transactionList = new TransactionList(transactionRows);
+        transactionList.addAll(transactions);
+        categories = new ArrayList<>();
+        for(int i = 0; i < categoryRows; i++)
+            categories.add(new Category(i, 1, "title " + i, "description " + i, 123456, 100));
+    }
+
+    @Benchmark
+    public byte[] serializeTransactions() throws Exception {
+        return objectMapper.writeValueAsBytes(transactions);
+    }
+
+    @Benchmark
+    public byte[] serializeTransactionList() throws Exception {
+        return objectMapper.writeValueAsBytes(transactionList);
+    }
+
+    @Benchmark
+    public byte[] serializeCategories() throws Exception {
+        return objectMapper.writeValueAsBytes(categories);
+    }
+}
@@ -0,0 +1,80 @@
+package com.pairlearning.expensetracker.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pairlearning.expensetracker.domain.TransactionList;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ListEncodingBenchmark {
+
+    @Param({"10000"})
+    public int transactionRows;
+
+    private ObjectMapper jsonMapper;
+    private ObjectMapper smileMapper;
+    private ObjectMapper cborMapper;
+    private TransactionList transactions;
+
+    @Setup
+    public void setup() throws IOException {
+        jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+        smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+        cborMapper = Jackson2ObjectMapperBuilder.cbor().build();
+        transactions = new TransactionList(transactionRows);
+        for(int i = 0; i < transactionRows; i++)
+            transactions.add(1000 + i, 7, 1, 100 + (i * 37) % 100000, "note " + (i % 50), 1600000000000L + i * 60000L);
+        // Response sizes are fixed for a given list, so they are reported once rather than measured
+        System.out.printf("%d rows: json=%d columnar=%d smile=%d cbor=%d json+gzip=%d columnar+gzip=%d bytes%n", transactionRows,
+                serializeJson().length, serializeColumnarJson().length, serializeSmile().length, serializeCbor().length,
+                serializeJsonGzip().length, serializeColumnarJsonGzip().length);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws IOException {
+        return jsonMapper.writeValueAsBytes(transactions);
+    }
+
+    @Benchmark
+    public byte[] serializeColumnarJson() throws IOException {
+        return jsonMapper.writeValueAsBytes(transactions.columns());
+    }
+
+    @Benchmark
+    public byte[] serializeSmile() throws IOException {
+        return smileMapper.writeValueAsBytes(transactions);
+    }
+
+    @Benchmark
+    public byte[] serializeCbor() throws IOException {
+        return cborMapper.writeValueAsBytes(transactions);
+    }
+
+    @Benchmark
+    public byte[] serializeJsonGzip() throws IOException {
+        return gzip(jsonMapper, transactions);
+    }
+
+    @Benchmark
+    public byte[] serializeColumnarJsonGzip() throws IOException {
+        return gzip(jsonMapper, transactions.columns());
+    }
+
+    private static byte[] gzip(ObjectMapper objectMapper, Object value) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            objectMapper.writeValue(gzip, value);
+        }
+        return output.toByteArray();
+    }
+}
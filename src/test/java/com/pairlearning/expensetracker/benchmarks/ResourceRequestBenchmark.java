@@ -0,0 +1,75 @@
+package com.pairlearning.expensetracker.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.domain.User;
+import com.pairlearning.expensetracker.resources.CategoryResource;
+import com.pairlearning.expensetracker.resources.UserResource;
+import com.pairlearning.expensetracker.services.CategoryService;
+import com.pairlearning.expensetracker.services.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResourceRequestBenchmark {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {};
+
+    private ObjectMapper objectMapper;
+    private UserResource userResource;
+    private CategoryResource categoryResource;
+    private MockHttpServletRequest request;
+    private byte[] loginBody;
+    private byte[] categoryBody;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        User user = new User(1, "John", "Doe", "john.doe@example.com", "hashed");
+        Category category = new Category(1, 1, "Food", "Expenses for food", 0, 0);
+
+        // Stub-only mocks record no invocations, so they add next to nothing to the measured calls
+        UserService userService = mock(UserService.class, withSettings().stubOnly());
+        when(userService.validateUser(anyString(), anyString())).thenReturn(CompletableFuture.completedFuture(user));
+        userResource = new UserResource();
+        ReflectionTestUtils.setField(userResource, "userService", userService);
+
+        CategoryService categoryService = mock(CategoryService.class, withSettings().stubOnly());
+        when(categoryService.addCategory(anyInt(), anyString(), anyString())).thenReturn(category);
+        categoryResource = new CategoryResource();
+        ReflectionTestUtils.setField(categoryResource, "categoryService", categoryService);
+
+        request = new MockHttpServletRequest("POST", "/api/categories");
+        request.setAttribute("userId", 1);
+        loginBody = "{\"email\": \"john.doe@example.com\", \"password\": \"password\"}".getBytes(StandardCharsets.UTF_8);
+        categoryBody = "{\"title\": \"Food\", \"description\": \"Expenses for food\"}".getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, String>> loginGeneratesJwtToken() throws Exception {
+        return userResource.loginUser(objectMapper.readValue(loginBody, MAP_TYPE)).get();
+    }
+
+    @Benchmark
+    public ResponseEntity<Category> addCategoryFromRequestMap() throws Exception {
+        return categoryResource.addCategory(request, objectMapper.readValue(categoryBody, MAP_TYPE));
+    }
+}
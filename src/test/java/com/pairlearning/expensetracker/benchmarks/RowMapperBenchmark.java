@@ -0,0 +1,78 @@
+package com.pairlearning.expensetracker.benchmarks;
+
+import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.User;
+import com.pairlearning.expensetracker.repositories.CategoryRepositoryImpl;
+import com.pairlearning.expensetracker.repositories.TransactionRepositoryImpl;
+import com.pairlearning.expensetracker.repositories.UserRepositoryImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMapperBenchmark {
+
+    @Param({"1000"})
+    public int transactionRows;
+
+    @Param({"20"})
+    public int categoryRows;
+
+    private TransactionRepositoryImpl transactionRepository;
+    private CategoryRepositoryImpl categoryRepository;
+    private UserRepositoryImpl userRepository;
+
+    @Setup
+    public void setup() throws Exception {
+        List<Object[]> transactions = new ArrayList<>();
+        for(int i = 0; i < transactionRows; i++)
+            transactions.add(new Object[]{i, 1, 1, 1234L, "note " + i, 1600000000000L + i});
+        transactionRepository = new TransactionRepositoryImpl();
+        ReflectionTestUtils.setField(transactionRepository, "jdbcTemplate", new InMemoryJdbcTemplate(InMemoryJdbcTemplate.resultSet(
+                new String[]{"TRANSACTION_ID", "CATEGORY_ID", "USER_ID", "AMOUNT_CENTS", "NOTE", "TRANSACTION_DATE"},
+                new int[]{Types.INTEGER, Types.INTEGER, Types.INTEGER, Types.BIGINT, Types.VARCHAR, Types.BIGINT},
+                transactions)));
+
+        List<Object[]> categories = new ArrayList<>();
+        for(int i = 0; i < categoryRows; i++)
+            categories.add(new Object[]{i, 1, "title " + i, "description " + i, 123456L, 100});
+        categoryRepository = new CategoryRepositoryImpl();
+        ReflectionTestUtils.setField(categoryRepository, "jdbcTemplate", new InMemoryJdbcTemplate(InMemoryJdbcTemplate.resultSet(
+                new String[]{"CATEGORY_ID", "USER_ID", "TITLE", "DESCRIPTION", "TOTAL_EXPENSE_CENTS", "TRANSACTION_COUNT"},
+                new int[]{Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.INTEGER},
+                categories)));
+
+        userRepository = new UserRepositoryImpl();
+        userRepository.setJdbcTemplate(new InMemoryJdbcTemplate(InMemoryJdbcTemplate.resultSet(
+                new String[]{"USER_ID", "FIRST_NAME", "LAST_NAME", "EMAIL", "PASSWORD"},
+                new int[]{Types.INTEGER, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR, Types.VARCHAR},
+                Collections.singletonList(new Object[]{1, "John", "Doe", "john.doe@example.com",
+                        "$2a$10$abcdefghijklmnopqrstuuFMZVJ1Jq7bwnHjAKxZVKu3zP2B7cCa2"}))));
+    }
+
+    @Benchmark
+    public List<Transaction> mapTransactions() {
+        return transactionRepository.findAll(1, 1);
+    }
+
+    @Benchmark
+    public List<Category> mapCategories() {
+        return categoryRepository.findAll(1);
+    }
+
+    @Benchmark
+    public User mapUser() {
+        return userRepository.findById(1);
+    }
+}
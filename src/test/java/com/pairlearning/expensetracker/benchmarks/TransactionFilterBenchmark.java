@@ -0,0 +1,90 @@
+package com.pairlearning.expensetracker.benchmarks;
+
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import com.pairlearning.expensetracker.domain.TransactionList;
+import com.pairlearning.expensetracker.repositories.TransactionRepositoryImpl;
+import com.zaxxer.hikari.HikariDataSource;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Connection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtered listings against a migrated PostgreSQL holding one user with {@code userRows} transactions in one
+ * category, one every five minutes (about nine and a half years for a million rows).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionFilterBenchmark {
+
+    private static final long FIRST_TRANSACTION_DATE = 1500000000000L;
+    private static final long TRANSACTION_INTERVAL = 5 * 60 * 1000L;
+    private static final long MONTH = 30L * 24 * 60 * 60 * 1000;
+
+    @Param({"1000000"})
+    public int userRows;
+
+    private PostgreSQLContainer<?> postgresqlContainer;
+    private HikariDataSource dataSource;
+    private TransactionRepositoryImpl transactionRepository;
+    private TransactionFilter oneMonth;
+    private TransactionFilter oneMonthOverTwenty;
+
+    @Setup
+    public void setup() throws Exception {
+        postgresqlContainer = new PostgreSQLContainer<>("postgres:latest")
+                .withDatabaseName("expensetrackerdb")
+                .withUsername("postgres")
+                .withPassword("postgres");
+        postgresqlContainer.start();
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(postgresqlContainer.getJdbcUrl());
+        dataSource.setUsername(postgresqlContainer.getUsername());
+        dataSource.setPassword(postgresqlContainer.getPassword());
+        try (Connection connection = dataSource.getConnection()) {
+            new Liquibase("db/changelog/db.changelog-master.xml", new ClassLoaderResourceAccessor(), new JdbcConnection(connection))
+                    .update(new Contexts());
+        }
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO ET_USERS (USER_ID, FIRST_NAME, LAST_NAME, EMAIL, PASSWORD) VALUES(1, 'John', 'Doe', 'john.doe@example.com', 'x')");
+        jdbcTemplate.update("INSERT INTO ET_CATEGORIES (CATEGORY_ID, USER_ID, TITLE, DESCRIPTION) VALUES(1, 1, 'Food', 'Expenses for food')");
+        jdbcTemplate.update("INSERT INTO ET_TRANSACTIONS (TRANSACTION_ID, CATEGORY_ID, USER_ID, AMOUNT, NOTE, TRANSACTION_DATE) " +
+                "SELECT I, 1, 1, (I % 5000) / 100.0, 'note ' || I, ? + I * ? FROM GENERATE_SERIES(1, ?) I",
+                FIRST_TRANSACTION_DATE, TRANSACTION_INTERVAL, userRows);
+        jdbcTemplate.execute("VACUUM ANALYZE ET_TRANSACTIONS");
+
+        transactionRepository = new TransactionRepositoryImpl();
+        ReflectionTestUtils.setField(transactionRepository, "jdbcTemplate", jdbcTemplate);
+        long from = FIRST_TRANSACTION_DATE + userRows * TRANSACTION_INTERVAL / 2;
+        oneMonth = new TransactionFilter(from, from + MONTH, null, null, null);
+        oneMonthOverTwenty = new TransactionFilter(from, from + MONTH, 2000L, null, TransactionFilter.Sort.AMOUNT_DESC);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+        postgresqlContainer.stop();
+    }
+
+    @Benchmark
+    public TransactionList oneMonth() {
+        return transactionRepository.findFiltered(1, 1, oneMonth);
+    }
+
+    @Benchmark
+    public TransactionList oneMonthOverAmountByAmountDesc() {
+        return transactionRepository.findFiltered(1, 1, oneMonthOverTwenty);
+    }
+}
@@ -0,0 +1,235 @@
+package com.pairlearning.expensetracker.integrationtests;
+
+import com.pairlearning.expensetracker.repositories.CategoryDeletionRepositoryImpl;
+import com.pairlearning.expensetracker.repositories.CategoryRepositoryImpl;
+import com.pairlearning.expensetracker.repositories.DataVersionRepositoryImpl;
+import com.pairlearning.expensetracker.repositories.JdbcIdempotencyStore;
+import com.pairlearning.expensetracker.repositories.R2dbcCategoryRepository;
+import com.pairlearning.expensetracker.repositories.R2dbcTransactionRepository;
+import com.pairlearning.expensetracker.repositories.ReportRepositoryImpl;
+import com.pairlearning.expensetracker.repositories.SequenceIdAllocator;
+import com.pairlearning.expensetracker.repositories.TransactionRepositoryImpl;
+import com.pairlearning.expensetracker.repositories.UserRepositoryImpl;
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Migrates a fresh PostgreSQL with the Liquibase changelog and checks that every repository statement, JDBC and
+ * R2DBC, searches the indexes it is meant to: each expected index must appear in the plan with an {@code Index Cond}.
+ * Disabling sequential scans alone is not enough, as the planner then falls back to walking a whole index.
+ * A statement missing from both lists below fails, so a new one has to declare its index.
+ */
+public class QueryPlanTest
+{
+    // Reconciliation re-derives every category's totals, so it reads both tables in full by design
+    private static final List<String> FULL_SCAN_STATEMENTS = Collections.singletonList("CategoryRepositoryImpl.SQL_FIND_TOTALS_DRIFT");
+
+    // Plain inserts, upserts (their arbiter is a unique index by definition), sequences and notifications read no table
+    private static final List<String> NO_TABLE_READ_STATEMENTS = Arrays.asList(
+            "CategoryRepositoryImpl.SQL_CREATE", "CategoryRepositoryImpl.SQL_NOTIFY_CHANGE",
+            "CategoryDeletionRepositoryImpl.SQL_CREATE",
+            "JdbcIdempotencyStore.SQL_RESERVE",
+            "SequenceIdAllocator.SQL_NEXT_BLOCKS", "SequenceIdAllocator.SQL_NEXT_BLOCK_R2DBC",
+            "TransactionRepositoryImpl.SQL_CREATE_WITH_ID", "TransactionRepositoryImpl.SQL_UPSERT_SPEND_ROLLUP",
+            "UserRepositoryImpl.SQL_CREATE",
+            "R2dbcCategoryRepository.SQL_CREATE", "R2dbcCategoryRepository.SQL_CREATE_DELETION", "R2dbcCategoryRepository.SQL_NOTIFY_CHANGE",
+            "R2dbcTransactionRepository.SQL_UPSERT_SPEND_ROLLUP", "R2dbcTransactionRepository.SQL_NOTIFY_CHANGE");
+
+    private static final Map<String, List<String>> EXPECTED_INDEXES = new HashMap<>();
+
+    static {
+        String categoriesUser = "et_categories_user_idx";
+        String categoriesKey = "et_categories_pkey";
+        String transactionsListing = "et_transactions_user_category_date_idx";
+        String transactionsCategory = "et_transactions_category_idx";
+        String transactionsKey = "et_transactions_pkey";
+        String usersKey = "et_users_pkey";
+        String rollupsKey = "et_spend_rollups_pkey";
+        String deletionsKey = "et_category_deletions_pkey";
+        String idempotencyKey = "et_idempotency_keys_pkey";
+
+        expect(CategoryRepositoryImpl.class, categoriesUser, "SQL_FIND_ALL");
+        expect(CategoryRepositoryImpl.class, categoriesKey, "SQL_FIND_BY_ID", "SQL_UPDATE", "SQL_LOCK_TOTALS", "SQL_SET_TOTALS");
+        expect(CategoryRepositoryImpl.class, transactionsCategory, "SQL_FIND_ACTUAL_TOTALS");
+
+        expect(CategoryDeletionRepositoryImpl.class, categoriesKey, "SQL_SOFT_DELETE_CATEGORY", "SQL_DELETE_CATEGORY");
+        expect(CategoryDeletionRepositoryImpl.class, rollupsKey, "SQL_DELETE_SPEND_ROLLUPS");
+        expect(CategoryDeletionRepositoryImpl.class, deletionsKey, "SQL_FIND_BY_ID", "SQL_LOCK_PENDING", "SQL_RECORD_PROGRESS",
+                "SQL_FINISH", "SQL_RECORD_FAILURE");
+        expect(CategoryDeletionRepositoryImpl.class, "et_category_deletions_pending_idx", "SQL_CLAIM_PENDING");
+        expect(CategoryDeletionRepositoryImpl.class, transactionsCategory, "SQL_DELETE_TRANSACTIONS");
+
+        expect(DataVersionRepositoryImpl.class, usersKey, "SQL_FIND", "SQL_BUMP", "SQL_BUMP_FOR_CATEGORY");
+        expect(DataVersionRepositoryImpl.class, categoriesKey, "SQL_BUMP_FOR_CATEGORY");
+
+        expect(JdbcIdempotencyStore.class, idempotencyKey, "SQL_FIND", "SQL_COMPLETE", "SQL_RELEASE");
+        expect(JdbcIdempotencyStore.class, "et_idempotency_keys_created_idx", "SQL_PURGE_EXPIRED");
+
+        expect(ReportRepositoryImpl.class, rollupsKey, "SQL_FIND_SPEND");
+
+        expect(TransactionRepositoryImpl.class, transactionsListing, "SQL_FIND_ALL", "SQL_FIND_FILTERED_BY_DATE",
+                "SQL_FIND_FILTERED_BY_DATE_DESC", "SQL_FIND_FILTERED_BY_AMOUNT", "SQL_FIND_FILTERED_BY_AMOUNT_DESC",
+                "SQL_FIND_FIRST_PAGE", "SQL_FIND_PAGE_AFTER");
+        expect(TransactionRepositoryImpl.class, transactionsKey, "SQL_FIND_BY_ID", "SQL_FIND_BY_ID_FOR_UPDATE", "SQL_UPDATE", "SQL_DELETE");
+        // The category is checked for every read, and updated for every write to its totals
+        expect(TransactionRepositoryImpl.class, categoriesKey, "SQL_FIND_ALL", "SQL_FIND_FILTERED_BY_DATE",
+                "SQL_FIND_FILTERED_BY_DATE_DESC", "SQL_FIND_FILTERED_BY_AMOUNT", "SQL_FIND_FILTERED_BY_AMOUNT_DESC",
+                "SQL_FIND_FIRST_PAGE", "SQL_FIND_PAGE_AFTER", "SQL_FIND_BY_ID", "SQL_FIND_BY_ID_FOR_UPDATE", "SQL_CREATE",
+                "SQL_UPDATE_CATEGORY_TOTALS");
+
+        expect(UserRepositoryImpl.class, usersKey, "SQL_FIND_BY_ID");
+        expect(UserRepositoryImpl.class, "et_users_email_lower_idx", "SQL_FIND_BY_EMAIL");
+
+        expect(R2dbcCategoryRepository.class, categoriesUser, "SQL_FIND_ALL");
+        expect(R2dbcCategoryRepository.class, categoriesKey, "SQL_FIND_BY_ID", "SQL_UPDATE", "SQL_SOFT_DELETE_CATEGORY");
+        expect(R2dbcCategoryRepository.class, rollupsKey, "SQL_DELETE_SPEND_ROLLUPS");
+        expect(R2dbcCategoryRepository.class, usersKey, "SQL_BUMP_DATA_VERSION");
+
+        expect(R2dbcTransactionRepository.class, transactionsListing, "SQL_FIND_FILTERED_BY_DATE", "SQL_FIND_FILTERED_BY_DATE_DESC",
+                "SQL_FIND_FILTERED_BY_AMOUNT", "SQL_FIND_FILTERED_BY_AMOUNT_DESC");
+        expect(R2dbcTransactionRepository.class, transactionsKey, "SQL_FIND_BY_ID", "SQL_FIND_BY_ID_FOR_UPDATE", "SQL_UPDATE", "SQL_DELETE");
+        expect(R2dbcTransactionRepository.class, categoriesKey, "SQL_FIND_FILTERED_BY_DATE", "SQL_FIND_FILTERED_BY_DATE_DESC",
+                "SQL_FIND_FILTERED_BY_AMOUNT", "SQL_FIND_FILTERED_BY_AMOUNT_DESC", "SQL_FIND_BY_ID", "SQL_FIND_BY_ID_FOR_UPDATE",
+                "SQL_CREATE", "SQL_UPDATE", "SQL_UPDATE_CATEGORY_TOTALS");
+        expect(R2dbcTransactionRepository.class, usersKey, "SQL_BUMP_DATA_VERSION");
+    }
+
+    // R2DBC statements bind by name; a repeated name is one parameter. "::" casts are left alone
+    private static final Pattern NAMED_PARAMETER = Pattern.compile("(?<!:):([A-Za-z][A-Za-z0-9_]*)");
+
+    @ClassRule
+    public static final PostgreSQLContainer<?> postgresqlContainer = new PostgreSQLContainer<>("postgres:latest")
+            .withDatabaseName("expensetrackerdb")
+            .withUsername("postgres")
+            .withPassword("postgres");
+
+    private static Connection connection;
+
+    @BeforeClass
+    public static void migrate() throws Exception {
+        connection = DriverManager.getConnection(postgresqlContainer.getJdbcUrl(),
+                postgresqlContainer.getUsername(), postgresqlContainer.getPassword());
+        Liquibase liquibase = new Liquibase("db/changelog/db.changelog-master.xml",
+                new ClassLoaderResourceAccessor(), new JdbcConnection(connection));
+        liquibase.update(new Contexts());
+    }
+
+    @AfterClass
+    public static void closeConnection() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    public void repositoryStatementsShouldSearchTheirIndexes() throws Exception {
+        List<String> failures = new ArrayList<>();
+        for(Class<?> repository : Arrays.asList(CategoryRepositoryImpl.class, CategoryDeletionRepositoryImpl.class, DataVersionRepositoryImpl.class,
+                JdbcIdempotencyStore.class, ReportRepositoryImpl.class, SequenceIdAllocator.class, TransactionRepositoryImpl.class,
+                UserRepositoryImpl.class, R2dbcCategoryRepository.class, R2dbcTransactionRepository.class)) {
+            for(Field field : repository.getDeclaredFields()) {
+                if(!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class || !field.getName().startsWith("SQL_"))
+                    continue;
+                String name = repository.getSimpleName() + "." + field.getName();
+                if(FULL_SCAN_STATEMENTS.contains(name))
+                    continue;
+                field.setAccessible(true);
+                String plan = explain((String) field.get(null));
+                List<String> expectedIndexes = EXPECTED_INDEXES.get(name);
+                if(plan.contains("Seq Scan"))
+                    failures.add(name + " scans sequentially\n" + plan);
+                else if(expectedIndexes == null && !NO_TABLE_READ_STATEMENTS.contains(name))
+                    failures.add(name + " declares no expected index\n" + plan);
+                else if(expectedIndexes != null)
+                    for(String index : expectedIndexes)
+                        if(!searchesIndex(plan, index))
+                            failures.add(name + " has no Index Cond on " + index + "\n" + plan);
+            }
+        }
+        assertTrue("Statements not served by their indexes:\n" + String.join("\n", failures), failures.isEmpty());
+    }
+
+    private static void expect(Class<?> repository, String index, String... statements) {
+        for(String statement : statements)
+            EXPECTED_INDEXES.computeIfAbsent(repository.getSimpleName() + "." + statement, name -> new ArrayList<>()).add(index);
+    }
+
+    // True when a scan node on the index carries an Index Cond, rather than walking the whole index
+    private static boolean searchesIndex(String plan, String index) {
+        Pattern scan = Pattern.compile("Index (Only )?Scan (Backward )?using " + index + " |Bitmap Index Scan on " + index + "\\b");
+        String[] lines = plan.split("\n");
+        for(int i = 0; i < lines.length; i++) {
+            if(!scan.matcher(lines[i]).find())
+                continue;
+            for(int j = i + 1; j < lines.length && !lines[j].contains("->"); j++)
+                if(lines[j].trim().startsWith("Index Cond:"))
+                    return true;
+        }
+        return false;
+    }
+
+    private String explain(String sql) throws SQLException {
+        StringBuilder numberedSql = new StringBuilder();
+        int parameterCount = 0;
+        for(char c : sql.toCharArray()) {
+            if(c == '?')
+                numberedSql.append('$').append(++parameterCount);
+            else
+                numberedSql.append(c);
+        }
+        Map<String, Integer> namedParameters = new LinkedHashMap<>();
+        Matcher matcher = NAMED_PARAMETER.matcher(numberedSql.toString());
+        StringBuffer namedSql = new StringBuffer();
+        while(matcher.find()) {
+            Integer position = namedParameters.get(matcher.group(1));
+            if(position == null) {
+                position = ++parameterCount;
+                namedParameters.put(matcher.group(1), position);
+            }
+            matcher.appendReplacement(namedSql, "\\$" + position);
+        }
+        matcher.appendTail(namedSql);
+        numberedSql = new StringBuilder(namedSql);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+            // Plan for any parameter value, not for the NULLs passed to EXECUTE below
+            statement.execute("SET plan_cache_mode = force_generic_plan");
+            statement.execute("PREPARE explained AS " + numberedSql);
+            try {
+                String arguments = parameterCount == 0 ? "" : "(" + String.join(", ", Collections.nCopies(parameterCount, "NULL")) + ")";
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery("EXPLAIN EXECUTE explained" + arguments)) {
+                    while(rs.next())
+                        plan.append(rs.getString(1)).append('\n');
+                }
+                return plan.toString();
+            } finally {
+                statement.execute("DEALLOCATE explained");
+            }
+        }
+    }
+}
@@ -2,9 +2,11 @@ package com.pairlearning.expensetracker.unittests;
 
 import com.pairlearning.expensetracker.Constants;
 import com.pairlearning.expensetracker.filters.AuthFilter;
+import com.pairlearning.expensetracker.filters.TokenCache;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -18,6 +20,8 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Date;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -135,6 +139,64 @@ public class AuthFilterTest {
         verify(chain).doFilter(request, response);
     }
 
+    @Test
+    public void cachedTokenShouldSkipVerification() throws ServletException, IOException
+    {
+        String token = createValidToken(123);
+        TokenCache tokenCache = new TokenCache(100);
+        // Cached entry deliberately differs from the token claim to prove the cache answered
+        tokenCache.put(token, 456, new Date(System.currentTimeMillis() + 1000 * 60));
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+
+        AuthFilter filter = new AuthFilter(tokenCache);
+        filter.doFilter(request, response, chain);
+
+        verify(request).setAttribute("userId", 456);
+        verify(chain).doFilter(request, response);
+    }
+
+    @Test
+    public void verifiedTokenShouldBeCachedForRepeatRequests() throws ServletException, IOException
+    {
+        String token = createValidToken(123);
+        TokenCache tokenCache = new TokenCache(100);
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + token);
+
+        AuthFilter filter = new AuthFilter(tokenCache);
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        verify(request, times(2)).setAttribute("userId", 123);
+        assertEquals(Integer.valueOf(123), tokenCache.getUserId(token));
+    }
+
+    @Test
+    public void expiredCacheEntryShouldNotBeServed()
+    {
+        String token = createValidToken(123);
+        TokenCache tokenCache = new TokenCache(100);
+        tokenCache.put(token, 123, new Date(System.currentTimeMillis() - 1000));
+
+        assertNull(tokenCache.getUserId(token));
+    }
+
+    @Test
+    public void rejectedRequestsShouldBeCountedByReason() throws ServletException, IOException
+    {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AuthFilter filter = new AuthFilter(null, meterRegistry);
+
+        when(request.getHeader("Authorization")).thenReturn(null);
+        filter.doFilter(request, response, chain);
+        when(request.getHeader("Authorization")).thenReturn("Bearer " + createExpiredToken());
+        filter.doFilter(request, response, chain);
+        filter.doFilter(request, response, chain);
+
+        assertEquals(1.0, meterRegistry.get("et.auth.rejected").tag("reason", "missing").counter().count(), 0.0);
+        assertEquals(2.0, meterRegistry.get("et.auth.rejected").tag("reason", "invalid").counter().count(), 0.0);
+        assertEquals(0.0, meterRegistry.get("et.auth.rejected").tag("reason", "malformed").counter().count(), 0.0);
+    }
+
     private String createValidToken(int userId) {
         return Jwts.builder()
                 .setSubject("testuser")
@@ -0,0 +1,87 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.repositories.CategoryRepository;
+import com.pairlearning.expensetracker.services.CategoryCache;
+import com.pairlearning.expensetracker.services.CategoryServiceImpl;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+public class CategoryCacheTest {
+
+    private CategoryRepository categoryRepository;
+    private CategoryCache categoryCache;
+    private CategoryServiceImpl categoryService;
+
+    @Before
+    public void setUp() {
+        categoryRepository = mock(CategoryRepository.class);
+        when(categoryRepository.findAll(1)).thenReturn(Arrays.asList(
+                new Category(1, 1, "Food", "Groceries", 1000, 1),
+                new Category(2, 1, "Rent", "Monthly rent", 50000, 1)));
+        categoryCache = new CategoryCache(100, 60, categoryRepository);
+        categoryService = new CategoryServiceImpl();
+        ReflectionTestUtils.setField(categoryService, "categoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(categoryService, "categoryCache", categoryCache);
+    }
+
+    @Test
+    public void repeatedReadsShouldBeServedFromCache() {
+        categoryService.fetchAllCategories(1, 1);
+        categoryService.fetchAllCategories(1, 1);
+        Category category = categoryService.fetchCategoryById(1, 2, 1);
+
+        assertEquals("Rent", category.getTitle());
+        verify(categoryRepository, times(1)).findAll(1);
+        verify(categoryRepository, never()).findById(anyInt(), anyInt());
+    }
+
+    @Test
+    public void writeShouldPublishChangeAndDropCachedList() {
+        categoryService.fetchAllCategories(1, 1);
+
+        categoryService.addCategory(1, "Travel", "Trips");
+        categoryService.fetchAllCategories(1, 1);
+
+        verify(categoryRepository).publishChange(1);
+        verify(categoryRepository, times(2)).findAll(1);
+    }
+
+    @Test
+    public void readerAtNewerVersionShouldNotGetListCachedAtOlderOne() {
+        categoryService.fetchAllCategories(1, 1);
+        // A write committed on another node; its invalidation has not arrived yet
+        categoryService.fetchAllCategories(1, 2);
+        categoryService.fetchAllCategories(1, 2);
+        categoryService.fetchAllCategories(1, 1);
+
+        verify(categoryRepository, times(2)).findAll(1);
+    }
+
+    @Test
+    public void cachedListShouldSurviveUntilWriteCommits() {
+        categoryService.fetchAllCategories(1, 1);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            categoryService.updateCategory(1, 1, new Category(1, 1, "Food", "Groceries and takeaway", 1000, 1));
+            categoryService.fetchAllCategories(1, 1);
+            verify(categoryRepository, times(1)).findAll(1);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        categoryService.fetchAllCategories(1, 1);
+
+        verify(categoryRepository, times(2)).findAll(1);
+    }
+}
@@ -0,0 +1,116 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.domain.CategoryDeletion;
+import com.pairlearning.expensetracker.repositories.CategoryDeletionRepository;
+import com.pairlearning.expensetracker.services.CategoryDeletionWorker;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class CategoryDeletionWorkerTest {
+
+    private CategoryDeletionRepository repository;
+    private PlatformTransactionManager transactionManager;
+    private CategoryDeletionWorker worker;
+
+    @Before
+    public void setUp() {
+        repository = mock(CategoryDeletionRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        worker = new CategoryDeletionWorker(transactionManager);
+        ReflectionTestUtils.setField(worker, "categoryDeletionRepository", repository);
+        ReflectionTestUtils.setField(worker, "batchSize", 100);
+        ReflectionTestUtils.setField(worker, "retryDelayMillis", 60000L);
+        ReflectionTestUtils.setField(worker, "maxAttempts", 10);
+    }
+
+    @Test
+    public void purgeShouldDeleteInBatchesAndCommitEach() {
+        CategoryDeletion deletion = new CategoryDeletion(7, 1, 3, CategoryDeletion.Status.PENDING, 250, 0);
+        when(repository.lockPending(7)).thenReturn(deletion);
+        when(repository.deleteTransactions(3, 100)).thenReturn(100, 100, 50);
+
+        worker.purge(deletion);
+
+        verify(repository, times(3)).deleteTransactions(3, 100);
+        verify(repository, times(2)).recordProgress(7, 100);
+        verify(repository).recordProgress(7, 50);
+        verify(repository).finish(deletion);
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    public void purgeShouldStopWhenJobIsAlreadyDone() {
+        CategoryDeletion done = new CategoryDeletion(7, 1, 3, CategoryDeletion.Status.DONE, 10, 10);
+        when(repository.lockPending(7)).thenReturn(null);
+        when(repository.findById(1, 7)).thenReturn(done);
+
+        assertEquals(done, worker.purge(new CategoryDeletion(7, 1, 3, CategoryDeletion.Status.PENDING, 10, 0)));
+
+        verify(repository, never()).deleteTransactions(any(), anyInt());
+        verify(repository, never()).finish(any());
+    }
+
+    @Test
+    public void failedPurgeShouldBeLeftToTheSweepAndReportTheJob() {
+        CategoryDeletion deletion = new CategoryDeletion(7, 1, 3, CategoryDeletion.Status.PENDING, 250, 0);
+        CategoryDeletion pending = new CategoryDeletion(7, 1, 3, CategoryDeletion.Status.PENDING, 250, 100);
+        when(repository.lockPending(7)).thenReturn(deletion);
+        when(repository.deleteTransactions(3, 100)).thenReturn(100).thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+        when(repository.recordFailure(7, 60000L, 10)).thenReturn(CategoryDeletion.Status.PENDING);
+        when(repository.findById(1, 7)).thenReturn(pending);
+
+        assertEquals(pending, worker.purge(deletion));
+        verify(transactionManager).rollback(any());
+        verify(repository).recordFailure(7, 60000L, 10);
+        verify(repository, never()).finish(any());
+    }
+
+    @Test
+    public void purgePendingShouldWorkThroughEveryClaimedJob() {
+        CategoryDeletion first = new CategoryDeletion(7, 1, 3, CategoryDeletion.Status.PENDING, 10, 0);
+        CategoryDeletion second = new CategoryDeletion(8, 2, 4, CategoryDeletion.Status.PENDING, 0, 0);
+        when(repository.claimPending()).thenReturn(first, second, null);
+        when(repository.deleteTransactions(any(), anyInt())).thenReturn(10, 0);
+
+        worker.purgePending();
+
+        verify(repository).finish(first);
+        verify(repository).finish(second);
+        verify(repository, times(3)).claimPending();
+    }
+
+    @Test
+    public void failingJobShouldBackOffWithoutBlockingLaterJobs() {
+        CategoryDeletion failing = new CategoryDeletion(7, 1, 3, CategoryDeletion.Status.PENDING, 10, 0);
+        CategoryDeletion next = new CategoryDeletion(8, 2, 4, CategoryDeletion.Status.PENDING, 0, 0);
+        when(repository.claimPending()).thenReturn(failing, next, null);
+        when(repository.deleteTransactions(3, 100)).thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+        when(repository.deleteTransactions(4, 100)).thenReturn(0);
+        when(repository.recordFailure(7, 60000L, 10)).thenReturn(CategoryDeletion.Status.PENDING);
+
+        worker.purgePending();
+
+        verify(transactionManager).rollback(any());
+        verify(repository).recordFailure(7, 60000L, 10);
+        verify(repository, never()).finish(failing);
+        verify(repository).finish(next);
+    }
+
+    @Test
+    public void failureToClaimShouldPropagate() {
+        when(repository.claimPending()).thenThrow(new QueryTimeoutException("canceling statement due to statement timeout"));
+
+        assertThrows(QueryTimeoutException.class, () -> worker.purgePending());
+        verify(repository, never()).recordFailure(any(), anyLong(), anyInt());
+    }
+}
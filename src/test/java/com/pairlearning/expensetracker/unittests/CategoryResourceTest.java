@@ -1,7 +1,9 @@
 package com.pairlearning.expensetracker.unittests;
 import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.domain.CategoryDeletion;
 import com.pairlearning.expensetracker.resources.CategoryResource;
 import com.pairlearning.expensetracker.services.CategoryService;
+import com.pairlearning.expensetracker.services.DataVersionService;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -9,6 +11,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -29,6 +32,12 @@ public class CategoryResourceTest {
     @Mock
     private HttpServletResponse response;
 
+    @Mock
+    private WebRequest webRequest;
+
+    @Mock
+    private DataVersionService dataVersionService;
+
     @Mock
     private CategoryService categoryService;
 
@@ -41,36 +50,36 @@ public class CategoryResourceTest {
     // this test is checking that the getAllCategories method correctly returns a list of categories when the service returns a list of categories.
     @Test
     public void testGetAllCategoriesOK() {
-        Category category = new Category( 1, 1, "Test", "Test", 100.0);
+        Category category = new Category( 1, 1, "Test", "Test", 10000, 0);
         List<Category> t = new java.util.ArrayList<>();
         t.add(category);
-        when(service.fetchAllCategories(1)).thenReturn(t);
+        when(service.fetchAllCategories(1, 0L)).thenReturn(t);
         when(request.getAttribute("userId")).thenReturn(1);
-        assertEquals(categoryResource.getAllCategories(request).getStatusCode(), HttpStatus.OK);
+        assertEquals(categoryResource.getAllCategories(request, webRequest).getStatusCode(), HttpStatus.OK);
 
     }
 
     // this test is checking that the getAllCategories method correctly returns a list of categories when the service returns a list of categories.
     @Test
     public void testGetAllCategoriesCategory() {
-        Category category = new Category( 1, 1, "Test", "Test", 100.0);
-        Category category2 = new Category( 2, 1, "Test2", "Test2", 200.0);
+        Category category = new Category( 1, 1, "Test", "Test", 10000, 0);
+        Category category2 = new Category( 2, 1, "Test2", "Test2", 20000, 0);
         List<Category> t = new java.util.ArrayList<>();
         t.add(category);
         t.add(category2);
-        when(service.fetchAllCategories(1)).thenReturn(t);
+        when(service.fetchAllCategories(1, 0L)).thenReturn(t);
         when(request.getAttribute("userId")).thenReturn(1);
-        assertEquals(ResponseEntity.ok(t), categoryResource.getAllCategories(request));
-        verify(service, times(1)).fetchAllCategories(1);
+        assertEquals(ResponseEntity.ok(t), categoryResource.getAllCategories(request, webRequest));
+        verify(service, times(1)).fetchAllCategories(1, 0L);
     }
     // this test is checking that the getCategoryById method correctly returns a category when the service returns a category.
     @Test
     public void testGetCategoryById() {
-        Category category = new Category( 1, 1, "Test", "Test", 100.0);
-        when(service.fetchCategoryById(1, 1)).thenReturn(category);
+        Category category = new Category( 1, 1, "Test", "Test", 10000, 0);
+        when(service.fetchCategoryById(1, 1, 0L)).thenReturn(category);
         when(request.getAttribute("userId")).thenReturn(1);
-        assertEquals(ResponseEntity.ok(category), categoryResource.getCategoryById(request, 1));
-        verify(service, times(1)).fetchCategoryById(1, 1);
+        assertEquals(ResponseEntity.ok(category), categoryResource.getCategoryById(request, webRequest, 1));
+        verify(service, times(1)).fetchCategoryById(1, 1, 0L);
     }
 
     // this test is checking that the getCategoryById method correctly returns a category when the service returns a category.
@@ -79,7 +88,7 @@ public class CategoryResourceTest {
         Map<String, Object> categoryMap = new HashMap<>();
         categoryMap.put("title", "New Category");
         categoryMap.put("description", "Description of new category");
-        Category category = new Category(1, 1, "New Category", "Description of new category", 100.0);
+        Category category = new Category(1, 1, "New Category", "Description of new category", 10000, 0);
 
         when(request.getAttribute("userId")).thenReturn(1);
         when(categoryService.addCategory(1, "New Category", "Description of new category")).thenReturn(category);
@@ -116,7 +125,7 @@ public class CategoryResourceTest {
 
     @Test
     public void shouldReturnOkStatusWhenCategoryIsUpdatedSuccessfully() {
-        Category category = new Category(1, 1, "Updated Category", "Updated Description", 100.0);
+        Category category = new Category(1, 1, "Updated Category", "Updated Description", 10000, 0);
         Map<String, Boolean> successMap = new HashMap<>();
         successMap.put("success", true);
 
@@ -131,7 +140,7 @@ public class CategoryResourceTest {
     // this test is checking that the updateCategory method correctly handles the case where the category to update is not found by throwing a RuntimeException.
     @Test
     public void shouldThrowExceptionWhenCategoryNotFound() {
-        Category category = new Category(1, 1, "Updated Category", "Updated Description", 100.0);
+        Category category = new Category(1, 1, "Updated Category", "Updated Description", 10000, 0);
 
         when(request.getAttribute("userId")).thenReturn(1);
         doThrow(new RuntimeException()).when(categoryService).updateCategory(1, 1, category);
@@ -146,13 +155,27 @@ public class CategoryResourceTest {
         successMap.put("success", true);
 
         when(request.getAttribute("userId")).thenReturn(1);
-        doNothing().when(categoryService).removeCategoryWithAllTransactions(1, 1);
+        when(categoryService.removeCategoryWithAllTransactions(1, 1))
+                .thenReturn(new CategoryDeletion(7, 1, 1, CategoryDeletion.Status.DONE, 5, 5));
 
-        ResponseEntity<Map<String, Boolean>> response = categoryResource.deleteCategory(request, 1);
+        ResponseEntity<?> response = categoryResource.deleteCategory(request, 1);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(successMap, response.getBody());
     }
+
+    @Test
+    public void deleteShouldReportTheJobWhenPurgeIsLeftForRetry() {
+        CategoryDeletion deletion = new CategoryDeletion(7, 1, 1, CategoryDeletion.Status.PENDING, 5000, 1000);
+        when(request.getAttribute("userId")).thenReturn(1);
+        when(categoryService.removeCategoryWithAllTransactions(1, 1)).thenReturn(deletion);
+
+        ResponseEntity<?> response = categoryResource.deleteCategory(request, 1);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("/api/categories/deletions/7", response.getHeaders().getLocation().toString());
+        assertEquals(deletion, response.getBody());
+    }
     // this test is checking that the deleteCategory method correctly handles the case where the category to delete is not found by throwing a RuntimeException.
     @Test
     public void shouldThrowExceptionWhenCategoryToDeleteNotFound() {
@@ -162,4 +185,17 @@ public class CategoryResourceTest {
         assertThrows(RuntimeException.class, () -> categoryResource.deleteCategory(request, 1));
     }
 
+    @Test
+    public void asyncDeleteShouldAcceptAndPointAtTheJob() {
+        CategoryDeletion deletion = new CategoryDeletion(7, 1, 1, CategoryDeletion.Status.PENDING, 5000, 0);
+        when(request.getAttribute("userId")).thenReturn(1);
+        when(categoryService.startCategoryDeletion(1, 1)).thenReturn(deletion);
+
+        ResponseEntity<CategoryDeletion> response = categoryResource.deleteCategoryAsync(request, 1);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals("/api/categories/deletions/7", response.getHeaders().getLocation().toString());
+        assertEquals(deletion, response.getBody());
+    }
+
 }
@@ -0,0 +1,62 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.domain.CategoryTotalsDrift;
+import com.pairlearning.expensetracker.repositories.CategoryRepository;
+import com.pairlearning.expensetracker.services.CategoryTotalsReconciler;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CategoryTotalsReconcilerTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @InjectMocks
+    private CategoryTotalsReconciler reconciler;
+
+    @Test
+    public void reconcileShouldRepairEveryDriftedCategory() {
+        List<CategoryTotalsDrift> drifts = Arrays.asList(
+                new CategoryTotalsDrift(1, 1, 1000, 1, 1500, 2),
+                new CategoryTotalsDrift(2, 1, 0, 0, 750, 1));
+        when(categoryRepository.findTotalsDrift()).thenReturn(drifts);
+        when(categoryRepository.reconcileTotals(1)).thenReturn(drifts.get(0));
+        when(categoryRepository.reconcileTotals(2)).thenReturn(drifts.get(1));
+
+        List<CategoryTotalsDrift> result = reconciler.reconcile();
+
+        assertEquals(drifts, result);
+    }
+
+    @Test
+    public void reconcileShouldSkipDriftThatWasAWriteInFlight() {
+        when(categoryRepository.findTotalsDrift()).thenReturn(Collections.singletonList(new CategoryTotalsDrift(1, 1, 1000, 1, 1500, 2)));
+        when(categoryRepository.reconcileTotals(1)).thenReturn(null);
+
+        List<CategoryTotalsDrift> result = reconciler.reconcile();
+
+        assertEquals(0, result.size());
+    }
+
+    @Test
+    public void reconcileShouldNotTouchCategoriesWithoutDrift() {
+        when(categoryRepository.findTotalsDrift()).thenReturn(Collections.emptyList());
+
+        List<CategoryTotalsDrift> result = reconciler.reconcile();
+
+        assertEquals(0, result.size());
+        verify(categoryRepository, never()).reconcileTotals(anyInt());
+    }
+}
@@ -0,0 +1,71 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.filters.ConcurrencyLimitFilter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrencyLimitFilterTest {
+
+    @Test
+    public void requestOverLimitShouldBeRejectedAfterTimeout() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 50, meterRegistry);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    }catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        holder.start();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), rejected, (request, response) -> {});
+        release.countDown();
+        holder.join();
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), rejected.getStatus());
+        assertEquals(1.0, meterRegistry.get("et.requests.rejected").counter().count(), 0.0);
+
+        MockHttpServletResponse admitted = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), admitted, (request, response) -> {});
+        assertEquals(HttpStatus.OK.value(), admitted.getStatus());
+    }
+
+    @Test
+    public void asyncRequestShouldHoldPermitUntilItCompletes() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(1, 50, new SimpleMeterRegistry());
+        MockHttpServletRequest streaming = new MockHttpServletRequest();
+        streaming.setAsyncSupported(true);
+        filter.doFilter(streaming, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+        MockHttpServletResponse whileStreaming = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), whileStreaming, (request, response) -> {});
+        ((MockAsyncContext) streaming.getAsyncContext()).complete();
+        MockHttpServletResponse afterStreaming = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), afterStreaming, (request, response) -> {});
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.value(), whileStreaming.getStatus());
+        assertEquals(HttpStatus.OK.value(), afterStreaming.getStatus());
+    }
+}
@@ -0,0 +1,117 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.filters.IdempotencyFilter;
+import com.pairlearning.expensetracker.repositories.InMemoryIdempotencyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class IdempotencyFilterTest {
+
+    private static final String BODY = "{\"title\": \"Food\", \"description\": \"Groceries\"}";
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyFilter filter;
+    private AtomicInteger invocations;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new IdempotencyFilter(new InMemoryIdempotencyStore(100, 60), meterRegistry);
+        invocations = new AtomicInteger();
+    }
+
+    @Test
+    public void retryShouldReplayStoredResponseWithoutReachingController() throws Exception {
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(request("key-1", BODY), first, created());
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(request("key-1", BODY), retry, created());
+
+        assertEquals(1, invocations.get());
+        assertEquals(HttpStatus.CREATED.value(), first.getStatus());
+        assertEquals("{\"categoryId\":1}", first.getContentAsString());
+        assertNull(first.getHeader("Idempotent-Replayed"));
+        assertEquals(HttpStatus.CREATED.value(), retry.getStatus());
+        assertEquals("{\"categoryId\":1}", retry.getContentAsString());
+        assertEquals("true", retry.getHeader("Idempotent-Replayed"));
+        assertEquals(1.0, meterRegistry.get("et.idempotency.requests").tag("outcome", "replayed").counter().count(), 0.0);
+    }
+
+    @Test
+    public void sameKeyWithDifferentBodyShouldBeRejected() throws Exception {
+        filter.doFilter(request("key-1", BODY), new MockHttpServletResponse(), created());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request("key-1", "{\"title\": \"Rent\"}"), response, created());
+
+        assertEquals(1, invocations.get());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY.value(), response.getStatus());
+    }
+
+    @Test
+    public void retryWhileFirstRequestRunsShouldConflict() throws Exception {
+        MockHttpServletResponse concurrent = new MockHttpServletResponse();
+        filter.doFilter(request("key-1", BODY), new MockHttpServletResponse(), (request, response) -> {
+            filter.doFilter(request("key-1", BODY), concurrent, created());
+            ((HttpServletResponse) response).setStatus(HttpStatus.CREATED.value());
+        });
+
+        assertEquals(0, invocations.get());
+        assertEquals(HttpStatus.CONFLICT.value(), concurrent.getStatus());
+    }
+
+    @Test
+    public void failedRequestShouldReleaseKeyForRetry() throws Exception {
+        MockHttpServletResponse failed = new MockHttpServletResponse();
+        filter.doFilter(request("key-1", BODY), failed, (request, response) ->
+                ((HttpServletResponse) response).sendError(HttpStatus.BAD_REQUEST.value()));
+        MockHttpServletResponse retry = new MockHttpServletResponse();
+        filter.doFilter(request("key-1", BODY), retry, created());
+
+        assertEquals(HttpStatus.BAD_REQUEST.value(), failed.getStatus());
+        assertEquals(1, invocations.get());
+        assertEquals(HttpStatus.CREATED.value(), retry.getStatus());
+        assertNull(retry.getHeader("Idempotent-Replayed"));
+    }
+
+    @Test
+    public void requestWithoutKeyShouldPassThrough() throws Exception {
+        filter.doFilter(request(null, BODY), new MockHttpServletResponse(), created());
+        filter.doFilter(request(null, BODY), new MockHttpServletResponse(), created());
+
+        assertEquals(2, invocations.get());
+    }
+
+    private static MockHttpServletRequest request(String idempotencyKey, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/categories");
+        request.setAttribute("userId", 1);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        if(idempotencyKey != null)
+            request.addHeader("Idempotency-Key", idempotencyKey);
+        return request;
+    }
+
+    // Reads the body like the controller would, then writes a 201
+    private FilterChain created() {
+        return (request, response) -> {
+            assertEquals(BODY, StreamUtils.copyToString(request.getInputStream(), StandardCharsets.UTF_8));
+            invocations.incrementAndGet();
+            HttpServletResponse httpResponse = (HttpServletResponse) response;
+            httpResponse.setStatus(HttpStatus.CREATED.value());
+            httpResponse.setContentType("application/json");
+            httpResponse.getWriter().write("{\"categoryId\":1}");
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.services.LoginThrottle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoginThrottleTest {
+
+    private AtomicLong nanos;
+    private SimpleMeterRegistry meterRegistry;
+    private LoginThrottle loginThrottle;
+
+    @Before
+    public void setUp() {
+        nanos = new AtomicLong();
+        meterRegistry = new SimpleMeterRegistry();
+        loginThrottle = new LoginThrottle("email", 100, 3, 6, nanos::get, meterRegistry);
+    }
+
+    @Test
+    public void burstShouldBeCappedAtCapacity() {
+        for(int i = 0; i < 3; i++)
+            assertTrue(loginThrottle.tryAcquire("john.doe@example.com"));
+        assertFalse(loginThrottle.tryAcquire("john.doe@example.com"));
+        assertTrue(loginThrottle.tryAcquire("jane.doe@example.com"));
+
+        assertEquals(1.0, meterRegistry.get("et.login.throttled").tag("key", "email").counter().count(), 0.0);
+    }
+
+    @Test
+    public void bucketShouldRefillOneAttemptPerInterval() {
+        for(int i = 0; i < 3; i++)
+            loginThrottle.tryAcquire("john.doe@example.com");
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(loginThrottle.tryAcquire("john.doe@example.com"));
+        assertFalse(loginThrottle.tryAcquire("john.doe@example.com"));
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(10));
+        for(int i = 0; i < 3; i++)
+            assertTrue(loginThrottle.tryAcquire("john.doe@example.com"));
+        assertFalse(loginThrottle.tryAcquire("john.doe@example.com"));
+    }
+}
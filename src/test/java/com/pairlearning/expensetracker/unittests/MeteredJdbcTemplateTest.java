@@ -0,0 +1,68 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.domain.Category;
+import com.pairlearning.expensetracker.repositories.CategoryRepositoryImpl;
+import com.pairlearning.expensetracker.repositories.DataVersionRepository;
+import com.pairlearning.expensetracker.repositories.MeteredJdbcTemplate;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class MeteredJdbcTemplateTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PreparedStatement preparedStatement;
+    private MeteredJdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        Connection connection = mock(Connection.class);
+        preparedStatement = mock(PreparedStatement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        meterRegistry = new SimpleMeterRegistry();
+        jdbcTemplate = new MeteredJdbcTemplate(dataSource, meterRegistry);
+    }
+
+    @Test
+    public void repositoryStatementShouldBeTimedUnderItsConstantName() throws SQLException {
+        when(preparedStatement.executeUpdate()).thenReturn(1);
+        CategoryRepositoryImpl categoryRepository = new CategoryRepositoryImpl();
+        ReflectionTestUtils.setField(categoryRepository, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(categoryRepository, "dataVersionRepository", mock(DataVersionRepository.class));
+
+        categoryRepository.update(1, 2, new Category(2, 1, "Food", "Groceries", 0, 0));
+
+        Timer timer = meterRegistry.find("et.sql.duration")
+                .tags("statement", "CategoryRepositoryImpl.SQL_UPDATE", "outcome", "success").timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+
+    @Test
+    public void unknownStatementShouldBeTimedAsOtherWithErrorOutcome() throws SQLException {
+        when(preparedStatement.executeUpdate()).thenThrow(new SQLException("boom"));
+
+        try {
+            jdbcTemplate.update("UPDATE ET_USERS SET FIRST_NAME = ?", "John");
+        }catch (RuntimeException ignored) {
+        }
+
+        Timer timer = meterRegistry.find("et.sql.duration").tags("statement", "other", "outcome", "error").timer();
+        assertNotNull(timer);
+        assertEquals(1, timer.count());
+    }
+}
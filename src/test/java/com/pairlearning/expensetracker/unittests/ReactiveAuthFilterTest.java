@@ -0,0 +1,86 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.filters.AuthFilter;
+import com.pairlearning.expensetracker.filters.ReactiveAuthFilter;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class ReactiveAuthFilterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReactiveAuthFilter filter;
+    private AtomicBoolean chainCalled;
+    private WebFilterChain chain;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new ReactiveAuthFilter(new AuthFilter(null, meterRegistry), "/api/categories");
+        chainCalled = new AtomicBoolean();
+        chain = exchange -> {
+            chainCalled.set(true);
+            return Mono.empty();
+        };
+    }
+
+    @Test
+    public void validTokenShouldSetUserIdAttribute() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/categories")
+                .header(HttpHeaders.AUTHORIZATION, "Bearer " + createToken(123)));
+
+        filter.filter(exchange, chain).block();
+
+        assertEquals(123, (int) exchange.getAttribute("userId"));
+        assertTrue(chainCalled.get());
+    }
+
+    @Test
+    public void missingTokenShouldBeForbiddenAndCounted() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/categories/1/transactions"));
+
+        try {
+            filter.filter(exchange, chain).block();
+            fail("Expected ResponseStatusException");
+        }catch (ResponseStatusException e) {
+            assertEquals(HttpStatus.FORBIDDEN, e.getStatus());
+            assertEquals("Authorization token must be provided", e.getReason());
+        }
+        assertFalse(chainCalled.get());
+        assertEquals(1.0, meterRegistry.get("et.auth.rejected").tag("reason", "missing").counter().count(), 0.0);
+    }
+
+    @Test
+    public void unprotectedPathShouldPassWithoutToken() {
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/api/users/login"));
+
+        filter.filter(exchange, chain).block();
+
+        assertNull(exchange.getAttribute("userId"));
+        assertTrue(chainCalled.get());
+    }
+
+    private String createToken(int userId) {
+        return Jwts.builder()
+                .setSubject("testuser")
+                .claim("userId", userId)
+                .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60))
+                .signWith(SignatureAlgorithm.HS256, Constants.API_SECRET_KEY)
+                .compact();
+    }
+}
@@ -0,0 +1,54 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.domain.SpendRollup;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.repositories.ReportRepository;
+import com.pairlearning.expensetracker.services.ReportServiceImpl;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ReportServiceImplTest {
+
+    @Mock
+    private ReportRepository reportRepository;
+
+    @InjectMocks
+    private ReportServiceImpl reportService;
+
+    @Test
+    public void bucketsShouldStartOnFirstOfMonthAndOnMondayInUtc() {
+        long sunday = Instant.parse("2021-03-07T23:59:59Z").toEpochMilli();
+
+        assertEquals(Instant.parse("2021-03-01T00:00:00Z").toEpochMilli(), SpendRollup.Granularity.MONTH.bucketOf(sunday));
+        assertEquals(Instant.parse("2021-03-01T00:00:00Z").toEpochMilli(), SpendRollup.Granularity.WEEK.bucketOf(sunday));
+        assertEquals(Instant.parse("2021-02-22T00:00:00Z").toEpochMilli(),
+                SpendRollup.Granularity.WEEK.bucketOf(Instant.parse("2021-02-28T12:00:00Z").toEpochMilli()));
+    }
+
+    @Test
+    public void spendShouldIncludeWholeBucketHoldingFrom() {
+        long from = Instant.parse("2021-01-15T10:00:00Z").toEpochMilli();
+        long to = Instant.parse("2022-01-01T00:00:00Z").toEpochMilli();
+
+        reportService.fetchSpend(1, SpendRollup.Granularity.MONTH, from, to);
+
+        verify(reportRepository).findSpend(1, SpendRollup.Granularity.MONTH, Instant.parse("2021-01-01T00:00:00Z").toEpochMilli(), to);
+    }
+
+    @Test
+    public void spendShouldRejectEmptyRange() {
+        assertThrows(EtBadRequestException.class, () -> reportService.fetchSpend(1, SpendRollup.Granularity.WEEK, 2000L, 1000L));
+        verify(reportRepository, never()).findSpend(anyInt(), any(), anyLong(), anyLong());
+    }
+}
@@ -0,0 +1,109 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.repositories.RoutingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RoutingDataSourceTest {
+
+    private Connection primaryConnection;
+    private Connection replicaConnection;
+    private SimpleMeterRegistry meterRegistry;
+    private RoutingDataSource routingDataSource;
+
+    @Before
+    public void setUp() throws SQLException {
+        DataSource primary = mock(DataSource.class);
+        DataSource replica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        replicaConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica.getConnection()).thenReturn(replicaConnection);
+        meterRegistry = new SimpleMeterRegistry();
+        routingDataSource = new RoutingDataSource(primary, replica, 60_000, meterRegistry);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @After
+    public void tearDown() {
+        TransactionSynchronizationManager.clear();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void readOnlyTransactionShouldUseReplica() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(replicaConnection, routingDataSource.getConnection());
+        assertEquals(1.0, meterRegistry.get("et.datasource.routed").tag("role", "replica").counter().count(), 0.0);
+    }
+
+    @Test
+    public void writeTransactionShouldUsePrimary() throws SQLException {
+        assertSame(primaryConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    public void readsAfterCommittedWriteShouldStayOnPrimaryForThatUser() throws SQLException {
+        bindUser(1);
+        routingDataSource.getConnection();
+        for(TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations())
+            synchronization.afterCommit();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        bindUser(2);
+        assertSame(replicaConnection, routingDataSource.getConnection());
+        assertEquals(1.0, meterRegistry.get("et.datasource.routed").tag("reason", "read-your-writes").counter().count(), 0.0);
+    }
+
+    @Test
+    public void rolledBackWriteShouldNotPinReads() throws SQLException {
+        bindUser(1);
+        routingDataSource.getConnection();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(replicaConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    public void writeMarkedFromAnotherThreadShouldPinReads() throws SQLException {
+        routingDataSource.markWritten(1);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        bindUser(1);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    public void readOutsideTransactionShouldUsePrimaryWithoutPinning() throws SQLException {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        bindUser(1);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        assertEquals(0, TransactionSynchronizationManager.getSynchronizations().size());
+    }
+
+    private void bindUser(int userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setAttribute("userId", userId);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+}
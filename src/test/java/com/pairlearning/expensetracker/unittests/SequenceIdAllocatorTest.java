@@ -0,0 +1,110 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.repositories.SequenceIdAllocator;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class SequenceIdAllocatorTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SequenceIdAllocator idAllocator;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        idAllocator = new SequenceIdAllocator();
+        idAllocator.setJdbcTemplate(jdbcTemplate);
+    }
+
+    @Test
+    public void singleIdsShouldComeFromOneBlockPerFiftyInserts() {
+        when(jdbcTemplate.queryForList(anyString(), eq(new Object[]{"ET_USERS_SEQ", 1}), eq(Integer.class)))
+                .thenReturn(Collections.singletonList(51), Collections.singletonList(151));
+
+        for(int id = 2; id <= 51; id++)
+            assertEquals(id, idAllocator.nextId("ET_USERS_SEQ"));
+        assertEquals(102, idAllocator.nextId("ET_USERS_SEQ"));
+
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), any(Object[].class), eq(Integer.class));
+    }
+
+    @Test
+    public void asyncIdsShouldShareBlocksWithBlockingCallers() {
+        when(jdbcTemplate.queryForList(anyString(), eq(new Object[]{"ET_CATEGORIES_SEQ", 1}), eq(Integer.class)))
+                .thenReturn(Collections.singletonList(50));
+
+        assertEquals(1, idAllocator.nextId("ET_CATEGORIES_SEQ"));
+        assertEquals(2, (int) idAllocator.nextIdAsync("ET_CATEGORIES_SEQ").block());
+        assertEquals(3, idAllocator.nextId("ET_CATEGORIES_SEQ"));
+
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), any(Object[].class), eq(Integer.class));
+    }
+
+    @Test
+    public void callersFindingTheBlockEmptyShouldShareOneFetch() throws Exception {
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(jdbcTemplate.queryForList(anyString(), eq(new Object[]{"ET_USERS_SEQ", 1}), eq(Integer.class))).thenAnswer(invocation -> {
+            fetching.countDown();
+            release.await();
+            return Collections.singletonList(50);
+        });
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> ids = new ArrayList<>();
+            ids.add(callers.submit(() -> idAllocator.nextId("ET_USERS_SEQ")));
+            assertTrue(fetching.await(5, TimeUnit.SECONDS));
+            for(int i = 0; i < 7; i++)
+                ids.add(callers.submit(() -> idAllocator.nextId("ET_USERS_SEQ")));
+            release.countDown();
+
+            Set<Integer> distinct = new HashSet<>();
+            for(Future<Integer> id : ids)
+                distinct.add(id.get(5, TimeUnit.SECONDS));
+            assertEquals(8, distinct.size());
+            verify(jdbcTemplate, times(1)).queryForList(anyString(), any(Object[].class), eq(Integer.class));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void batchShouldDrainCurrentBlockThenFetchRemainingBlocksInOneCall() {
+        when(jdbcTemplate.queryForList(anyString(), eq(new Object[]{"ET_TRANSACTIONS_SEQ", 1}), eq(Integer.class)))
+                .thenReturn(Collections.singletonList(1050));
+        when(jdbcTemplate.queryForList(anyString(), eq(new Object[]{"ET_TRANSACTIONS_SEQ", 2}), eq(Integer.class)))
+                .thenReturn(Arrays.asList(1100, 1250));
+
+        assertEquals(1001, idAllocator.nextId("ET_TRANSACTIONS_SEQ"));
+        List<Integer> ids = idAllocator.nextIds("ET_TRANSACTIONS_SEQ", 110);
+
+        assertEquals(110, ids.size());
+        assertEquals(1002, (int) ids.get(0));
+        assertEquals(1050, (int) ids.get(48));
+        assertEquals(1051, (int) ids.get(49));
+        assertEquals(1100, (int) ids.get(98));
+        assertEquals(1201, (int) ids.get(99));
+        assertEquals(1211, (int) ids.get(109));
+        // The rest of the batch's last block serves the next single insert
+        assertEquals(1212, idAllocator.nextId("ET_TRANSACTIONS_SEQ"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pairlearning.expensetracker.domain.Money;
+import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionList;
+import org.junit.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TransactionListTest {
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    @Test
+    public void listShouldSerializeLikeTransactionBeans() throws Exception {
+        List<Transaction> transactions = new ArrayList<>();
+        TransactionList transactionList = new TransactionList(1);
+        for(int i = 1; i <= 40; i++) {
+            Transaction transaction = new Transaction(i, 2, 1, 1005L * i, i % 2 == 0 ? null : "note " + i, 1600000000000L + i);
+            transactions.add(transaction);
+            transactionList.add(transaction);
+        }
+
+        assertEquals(objectMapper.writeValueAsString(transactions), objectMapper.writeValueAsString(transactionList));
+        assertEquals(40, transactionList.size());
+        assertEquals(transactions.get(38).getAmount(), transactionList.get(38).getAmount());
+    }
+
+    @Test
+    public void columnsShouldHoldTheSameValuesAsRows() throws Exception {
+        TransactionList transactionList = new TransactionList();
+        transactionList.add(1, 2, 1, 1050, "coffee", 1000L);
+        transactionList.add(2, 2, 1, 725, null, 2000L);
+
+        JsonNode rows = objectMapper.readTree(objectMapper.writeValueAsString(transactionList));
+        JsonNode columns = objectMapper.readTree(objectMapper.writeValueAsString(transactionList.columns()));
+
+        assertEquals(6, columns.size());
+        for(int i = 0; i < rows.size(); i++) {
+            Iterator<String> fields = rows.get(i).fieldNames();
+            while(fields.hasNext()) {
+                String field = fields.next();
+                assertEquals(field, rows.get(i).get(field), columns.get(field).get(i));
+            }
+        }
+    }
+
+    @Test
+    public void amountsShouldRoundTripThroughJsonWithoutDoubleRounding() throws Exception {
+        Transaction transaction = objectMapper.readValue("{\"amount\": 0.29, \"note\": \"coffee\", \"transactionDate\": 1}", Transaction.class);
+
+        assertEquals(29L, transaction.getAmount());
+        assertEquals("{\"transactionId\":0,\"categoryId\":0,\"userId\":0,\"amount\":0.29,\"note\":\"coffee\",\"transactionDate\":1}",
+                objectMapper.writeValueAsString(transaction));
+    }
+
+    @Test
+    public void parsedAmountsShouldRoundHalfUpToCents() {
+        assertEquals(1235L, Money.parseCents("12.345"));
+        assertEquals(-1235L, Money.parseCents(" -12.345 "));
+        assertEquals(100L, Money.parseCents("1"));
+    }
+}
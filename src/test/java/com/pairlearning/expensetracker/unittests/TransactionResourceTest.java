@@ -0,0 +1,240 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import com.pairlearning.expensetracker.domain.TransactionImportOutcome;
+import com.pairlearning.expensetracker.domain.TransactionImportResult;
+import com.pairlearning.expensetracker.domain.TransactionList;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.resources.TransactionResource;
+import com.pairlearning.expensetracker.services.DataVersionService;
+import com.pairlearning.expensetracker.services.TransactionService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.WebRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TransactionResourceTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @Mock
+    private DataVersionService dataVersionService;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private TransactionResource transactionResource;
+
+    @Test
+    public void batchShouldImportValidRowsAndRejectInvalidOnes() throws Exception {
+        MockHttpServletRequest request = batchRequest("[" +
+                "{\"amount\": 10.5, \"note\": \"coffee\", \"transactionDate\": 1000}," +
+                "{\"amount\": 3, \"transactionDate\": 2000}," +
+                "{\"amount\": \"7.25\", \"note\": \"bus\", \"transactionDate\": 3000}" +
+                "]");
+        when(transactionService.addTransactions(eq(1), eq(2), anyList())).thenReturn(Arrays.asList(1001, 1002));
+
+        ResponseEntity<TransactionImportResult> response = transactionResource.addTransactionsBatch(request, 2);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        TransactionImportResult result = response.getBody();
+        assertEquals(2, result.getCreated());
+        assertEquals(1, result.getRejected());
+        assertEquals(Integer.valueOf(1), result.getRows().get(0).getIndex());
+        assertEquals(Integer.valueOf(1001), result.getRows().get(1).getTransactionId());
+        assertEquals(Integer.valueOf(2), result.getRows().get(2).getIndex());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Transaction>> chunk = ArgumentCaptor.forClass(List.class);
+        verify(transactionService).addTransactions(eq(1), eq(2), chunk.capture());
+        assertEquals(725L, chunk.getValue().get(1).getAmount());
+    }
+
+    @Test
+    public void batchShouldRejectBodyThatIsNotAnArray() throws Exception {
+        MockHttpServletRequest request = batchRequest("{\"amount\": 1}");
+
+        ResponseEntity<TransactionImportResult> response = transactionResource.addTransactionsBatch(request, 2);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertNotNull(response.getBody().getError());
+        verify(transactionService, never()).addTransactions(anyInt(), anyInt(), anyList());
+    }
+
+    @Test
+    public void batchShouldReportMalformedJson() throws Exception {
+        MockHttpServletRequest request = batchRequest("[{\"amount\": 1, \"note\": \"x\", \"transactionDate\": 1}, {\"amount\": ");
+
+        ResponseEntity<TransactionImportResult> response = transactionResource.addTransactionsBatch(request, 2);
+
+        assertEquals(HttpStatus.MULTI_STATUS, response.getStatusCode());
+        assertNotNull(response.getBody().getError());
+        assertEquals(1, response.getBody().getFailed());
+        assertEquals(TransactionImportOutcome.FAILED, response.getBody().getRows().get(0).getStatus());
+        verify(transactionService, never()).addTransactions(anyInt(), anyInt(), anyList());
+    }
+
+    @Test
+    public void batchShouldReportEveryRowWhenAChunkFails() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for(int i = 0; i < Constants.TRANSACTION_BATCH_CHUNK_SIZE * 2 + 1; i++)
+            body.append(i == 0 ? "" : ",").append("{\"amount\": 1, \"note\": \"x\", \"transactionDate\": 1}");
+        MockHttpServletRequest request = batchRequest(body.append("]").toString());
+        List<Integer> transactionIds = IntStream.range(0, Constants.TRANSACTION_BATCH_CHUNK_SIZE).boxed().collect(Collectors.toList());
+        when(transactionService.addTransactions(eq(1), eq(2), anyList()))
+                .thenReturn(transactionIds)
+                .thenThrow(new EtBadRequestException("Invalid request"));
+
+        ResponseEntity<TransactionImportResult> response = transactionResource.addTransactionsBatch(request, 2);
+
+        assertEquals(HttpStatus.MULTI_STATUS, response.getStatusCode());
+        TransactionImportResult result = response.getBody();
+        assertEquals("Invalid request", result.getError());
+        assertEquals(Constants.TRANSACTION_BATCH_CHUNK_SIZE, result.getCreated());
+        assertEquals(Constants.TRANSACTION_BATCH_CHUNK_SIZE + 1, result.getFailed());
+        assertEquals(Constants.TRANSACTION_BATCH_CHUNK_SIZE * 2 + 1, result.getRows().size());
+        verify(transactionService, times(2)).addTransactions(eq(1), eq(2), anyList());
+    }
+
+    @Test
+    public void listingShouldRejectLimitCombinedWithColumnarFormat() {
+        MockHttpServletRequest request = getRequest();
+        request.addParameter("limit", "10");
+        request.addParameter("format", "columnar");
+
+        assertThrows(EtBadRequestException.class, () -> transactionResource.getAllTransactions(request, mock(WebRequest.class),
+                2, null, null, null, null, null));
+        verify(transactionService, never()).fetchAllTransactions(anyInt(), anyInt());
+    }
+
+    @Test
+    public void filterParametersShouldBeParsedIntoCentsAndSortOrder() {
+        when(transactionService.fetchFilteredTransactions(eq(1), eq(2), any())).thenReturn(new TransactionList());
+
+        transactionResource.getAllTransactions(getRequest(), mock(WebRequest.class), 2, 1000L, 2000L, "0.5", "12.34", "-date");
+
+        ArgumentCaptor<TransactionFilter> filter = ArgumentCaptor.forClass(TransactionFilter.class);
+        verify(transactionService).fetchFilteredTransactions(eq(1), eq(2), filter.capture());
+        assertEquals(Long.valueOf(1000L), filter.getValue().getFrom());
+        assertEquals(Long.valueOf(2000L), filter.getValue().getTo());
+        assertEquals(Long.valueOf(50L), filter.getValue().getMinAmount());
+        assertEquals(Long.valueOf(1234L), filter.getValue().getMaxAmount());
+        assertEquals(TransactionFilter.Sort.DATE_DESC, filter.getValue().getSort());
+        verify(transactionService, never()).fetchAllTransactions(anyInt(), anyInt());
+    }
+
+    @Test(expected = EtBadRequestException.class)
+    public void unknownSortShouldBeRejected() {
+        transactionResource.getAllTransactions(getRequest(), mock(WebRequest.class), 2, null, null, null, null, "note");
+    }
+
+    @Test
+    public void streamShouldWriteEachRowAsTheServiceProducesIt() throws Exception {
+        List<Transaction> transactions = Arrays.asList(new Transaction(1, 2, 1, 1050, "coffee", 1000L),
+                new Transaction(2, 2, 1, 725, "bus", 2000L));
+        doAnswer(invocation -> {
+            Consumer<Transaction> consumer = invocation.getArgument(2);
+            transactions.forEach(consumer);
+            return null;
+        }).when(transactionService).streamAllTransactions(eq(1), eq(2), any());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        transactionResource.streamAllTransactions(getRequest(), mock(WebRequest.class), 2).getBody().writeTo(output);
+
+        assertEquals(objectMapper.writeValueAsString(transactions), output.toString("UTF-8"));
+    }
+
+    @Test
+    public void streamShouldLeaveArrayOpenWhenSourceFails() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<Transaction> consumer = invocation.getArgument(2);
+            consumer.accept(new Transaction(1, 2, 1, 1050, "coffee", 1000L));
+            throw new IllegalStateException("connection lost");
+        }).when(transactionService).streamAllTransactions(eq(1), eq(2), any());
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            transactionResource.streamAllTransactions(getRequest(), mock(WebRequest.class), 2).getBody().writeTo(output);
+            fail();
+        }catch (IllegalStateException expected) {
+        }
+
+        assertFalse(output.toString("UTF-8").endsWith("]"));
+    }
+
+    @Test
+    public void listingShouldCarryDataVersionAsETag() {
+        when(dataVersionService.fetchDataVersion(1)).thenReturn(7L);
+        when(transactionService.fetchAllTransactions(1, 2)).thenReturn(new TransactionList());
+        MockHttpServletRequest request = getRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ResponseEntity<TransactionList> entity = transactionResource.getAllTransactions(request, new ServletWebRequest(request, response),
+                2, null, null, null, null, null);
+
+        assertEquals(HttpStatus.OK, entity.getStatusCode());
+        assertEquals("W/\"1-7\"", response.getHeader("ETag"));
+        assertEquals("Accept, Accept-Encoding", response.getHeader("Vary"));
+    }
+
+    @Test
+    public void unchangedListingShouldBeAnsweredNotModifiedWithoutQuerying() {
+        when(dataVersionService.fetchDataVersion(1)).thenReturn(7L);
+        MockHttpServletRequest request = getRequest();
+        request.addHeader("If-None-Match", "W/\"1-7\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        ResponseEntity<TransactionList> entity = transactionResource.getAllTransactions(request, new ServletWebRequest(request, response),
+                2, null, null, null, null, null);
+
+        assertNull(entity);
+        assertEquals(HttpStatus.NOT_MODIFIED.value(), response.getStatus());
+        assertEquals("Accept, Accept-Encoding", response.getHeader("Vary"));
+        verify(transactionService, never()).fetchAllTransactions(anyInt(), anyInt());
+    }
+
+    private MockHttpServletRequest getRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/categories/2/transactions");
+        request.setAttribute("userId", 1);
+        return request;
+    }
+
+    private MockHttpServletRequest batchRequest(String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/categories/2/transactions/batch");
+        request.setAttribute("userId", 1);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
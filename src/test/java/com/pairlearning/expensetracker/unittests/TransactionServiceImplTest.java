@@ -0,0 +1,123 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.Constants;
+import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.domain.TransactionFilter;
+import com.pairlearning.expensetracker.domain.TransactionList;
+import com.pairlearning.expensetracker.domain.TransactionPage;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.repositories.TransactionRepository;
+import com.pairlearning.expensetracker.services.TransactionServiceImpl;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class TransactionServiceImplTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private TransactionServiceImpl transactionService;
+
+    @Test
+    public void pageShouldReturnNextCursorWhenMoreRowsExist() {
+        when(transactionRepository.findPage(1, 2, null, null, 3)).thenReturn(transactions(3));
+
+        TransactionPage page = transactionService.fetchTransactionPage(1, 2, null, 2);
+
+        assertEquals(2, page.getTransactions().size());
+        assertNotNull(page.getNext());
+    }
+
+    @Test
+    public void pageShouldNotReturnNextCursorOnLastPage() {
+        when(transactionRepository.findPage(1, 2, null, null, 3)).thenReturn(transactions(2));
+
+        TransactionPage page = transactionService.fetchTransactionPage(1, 2, null, 2);
+
+        assertEquals(2, page.getTransactions().size());
+        assertNull(page.getNext());
+    }
+
+    @Test
+    public void filterShouldRejectEmptyDateRange() {
+        TransactionFilter filter = new TransactionFilter(2000L, 1000L, null, null, null);
+
+        assertThrows(EtBadRequestException.class, () -> transactionService.fetchFilteredTransactions(1, 2, filter));
+        verify(transactionRepository, never()).findFiltered(anyInt(), anyInt(), any());
+    }
+
+    @Test
+    public void filterShouldBePassedToRepository() {
+        TransactionFilter filter = new TransactionFilter(1000L, 2000L, 500L, 500L, TransactionFilter.Sort.AMOUNT_DESC);
+        TransactionList transactions = new TransactionList();
+        when(transactionRepository.findFiltered(1, 2, filter)).thenReturn(transactions);
+
+        assertSame(transactions, transactionService.fetchFilteredTransactions(1, 2, filter));
+    }
+
+    @Test
+    public void nextCursorShouldResumeAfterLastRowOfPreviousPage() {
+        when(transactionRepository.findPage(1, 2, null, null, 3)).thenReturn(transactions(3));
+        String next = transactionService.fetchTransactionPage(1, 2, null, 2).getNext();
+
+        transactionService.fetchTransactionPage(1, 2, next, 2);
+
+        verify(transactionRepository).findPage(1, 2, 2000L, 2, 3);
+    }
+
+    @Test
+    public void pageSizeShouldBeCappedAtMaximum() {
+        when(transactionRepository.findPage(anyInt(), anyInt(), any(), any(), anyInt())).thenReturn(new ArrayList<>());
+
+        transactionService.fetchTransactionPage(1, 2, null, Integer.MAX_VALUE);
+
+        verify(transactionRepository).findPage(1, 2, null, null, Constants.TRANSACTION_PAGE_MAX_SIZE + 1);
+    }
+
+    @Test
+    public void invalidCursorShouldThrowEtBadRequestException() {
+        assertThrows(EtBadRequestException.class, () -> transactionService.fetchTransactionPage(1, 2, "not a cursor", 10));
+    }
+
+    @Test
+    public void nonPositiveLimitShouldThrowEtBadRequestException() {
+        assertThrows(EtBadRequestException.class, () -> transactionService.fetchTransactionPage(1, 2, null, 0));
+    }
+
+    @Test
+    public void addTransactionShouldReturnInsertedRowWithoutSecondLookup() {
+        Transaction created = new Transaction(1000, 2, 1, 1250, "lunch", 1600000000000L);
+        when(transactionRepository.create(1, 2, 1250, "lunch", 1600000000000L)).thenReturn(created);
+
+        Transaction result = transactionService.addTransaction(1, 2, 1250, "lunch", 1600000000000L);
+
+        assertSame(created, result);
+        verify(transactionRepository, never()).findById(anyInt(), anyInt(), anyInt());
+    }
+
+    private List<Transaction> transactions(int count) {
+        List<Transaction> transactions = new ArrayList<>();
+        for(int i = 1; i <= count; i++)
+            transactions.add(new Transaction(i, 2, 1, 1000L * i, "note " + i, 1000L * i));
+        return transactions;
+    }
+}
@@ -0,0 +1,204 @@
+package com.pairlearning.expensetracker.unittests;
+
+import com.pairlearning.expensetracker.domain.Transaction;
+import com.pairlearning.expensetracker.exceptions.EtBadRequestException;
+import com.pairlearning.expensetracker.exceptions.EtServiceUnavailableException;
+import com.pairlearning.expensetracker.repositories.RoutingDataSource;
+import com.pairlearning.expensetracker.repositories.TransactionRepository;
+import com.pairlearning.expensetracker.services.CategoryCache;
+import com.pairlearning.expensetracker.services.TransactionWriteBuffer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+public class TransactionWriteBufferTest {
+
+    private TransactionRepository transactionRepository;
+    private PlatformTransactionManager transactionManager;
+    private RoutingDataSource routingDataSource;
+    private CategoryCache categoryCache;
+    private SimpleMeterRegistry meterRegistry;
+    private ExecutorService callers;
+    private AtomicInteger nextId;
+    private TransactionWriteBuffer buffer;
+
+    @Before
+    public void setUp() {
+        transactionRepository = mock(TransactionRepository.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        routingDataSource = mock(RoutingDataSource.class);
+        categoryCache = mock(CategoryCache.class);
+        meterRegistry = new SimpleMeterRegistry();
+        callers = Executors.newFixedThreadPool(4);
+        nextId = new AtomicInteger(1000);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        callers.shutdownNow();
+        if(buffer != null)
+            buffer.shutdown();
+    }
+
+    @Test
+    public void concurrentWritesShouldShareOneCommit() throws Exception {
+        buffer = buffer(16, 3, 5000);
+        when(transactionRepository.createGroup(anyList())).thenAnswer(invocation -> createdRows(invocation.getArgument(0)));
+
+        List<Future<Transaction>> results = writeConcurrently(1, 2, 3);
+
+        for(Future<Transaction> result : results)
+            assertTrue(result.get(5, TimeUnit.SECONDS).getTransactionId() > 1000);
+        verify(transactionRepository, times(1)).createGroup(argThat(rows -> rows.size() == 3));
+        verify(transactionManager, times(1)).commit(any());
+        verify(routingDataSource, times(3)).markWritten(1);
+        InOrder inOrder = inOrder(categoryCache, transactionManager);
+        inOrder.verify(categoryCache, times(1)).categoriesChanged(1);
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void loneWriteShouldCommitAfterMaxDelay() {
+        buffer = buffer(16, 100, 20);
+        when(transactionRepository.createGroup(anyList())).thenAnswer(invocation -> createdRows(invocation.getArgument(0)));
+
+        Transaction transaction = buffer.write(1, 2, 1250, "lunch", 1600000000000L);
+
+        assertEquals(1001, transaction.getTransactionId());
+        assertEquals(1250, transaction.getAmount());
+        assertEquals(1.0, meterRegistry.get("et.transaction-buffer.group.size").summary().totalAmount(), 0.0);
+    }
+
+    @Test
+    public void rowForAnotherUsersCategoryShouldFailOnlyItsCaller() throws Exception {
+        buffer = buffer(16, 2, 5000);
+        // Category 99 is not user 1's
+        when(transactionRepository.createGroup(anyList())).thenAnswer(invocation -> {
+            List<Transaction> rows = invocation.getArgument(0);
+            return rows.stream().map(row -> row.getCategoryId() == 99 ? null : created(row)).collect(Collectors.toList());
+        });
+
+        Future<Transaction> accepted = callers.submit(() -> buffer.write(1, 2, 100, "ok", 1000L));
+        Future<Transaction> rejected = callers.submit(() -> buffer.write(1, 99, 100, "ok", 1000L));
+
+        assertEquals(2, accepted.get(5, TimeUnit.SECONDS).getCategoryId());
+        assertCause(EtBadRequestException.class, rejected);
+        verify(transactionRepository, times(1)).createGroup(anyList());
+    }
+
+    @Test
+    public void failedGroupShouldRetryRowsOneByOne() throws Exception {
+        buffer = buffer(16, 2, 5000);
+        when(transactionRepository.createGroup(anyList())).thenAnswer(invocation -> {
+            List<Transaction> rows = invocation.getArgument(0);
+            if(rows.stream().anyMatch(row -> "bad".equals(row.getNote())))
+                throw new DataIntegrityViolationException("value too long");
+            return createdRows(rows);
+        });
+
+        Future<Transaction> good = callers.submit(() -> buffer.write(1, 2, 100, "good", 1000L));
+        Future<Transaction> bad = callers.submit(() -> buffer.write(1, 2, 100, "bad", 1000L));
+
+        assertEquals("good", good.get(5, TimeUnit.SECONDS).getNote());
+        assertCause(EtBadRequestException.class, bad);
+        verify(transactionRepository, times(3)).createGroup(anyList());
+    }
+
+    @Test
+    public void connectionFailureShouldFailWholeGroupWithoutRetries() throws Exception {
+        buffer = buffer(16, 2, 5000);
+        when(transactionRepository.createGroup(anyList())).thenThrow(new CannotGetJdbcConnectionException("Connection is not available"));
+
+        Future<Transaction> first = callers.submit(() -> buffer.write(1, 2, 100, "first", 1000L));
+        Future<Transaction> second = callers.submit(() -> buffer.write(1, 2, 100, "second", 1000L));
+
+        assertCause(EtServiceUnavailableException.class, first);
+        assertCause(EtServiceUnavailableException.class, second);
+        verify(transactionRepository, times(1)).createGroup(anyList());
+    }
+
+    @Test
+    public void callerShouldStopWaitingAfterTimeout() throws Exception {
+        buffer = new TransactionWriteBuffer(transactionRepository, transactionManager, routingDataSource, categoryCache,
+                16, 1, 0, 50, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionRepository.createGroup(anyList())).thenAnswer(invocation -> {
+            release.await();
+            return createdRows(invocation.getArgument(0));
+        });
+
+        assertThrows(EtServiceUnavailableException.class, () -> buffer.write(1, 2, 100, "slow", 1000L));
+        release.countDown();
+    }
+
+    @Test
+    public void fullQueueShouldRejectWithoutWaiting() throws Exception {
+        buffer = buffer(1, 1, 0);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(transactionRepository.createGroup(anyList())).thenAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return createdRows(invocation.getArgument(0));
+        });
+
+        Future<Transaction> inFlight = callers.submit(() -> buffer.write(1, 2, 100, "first", 1000L));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        Future<Transaction> queued = callers.submit(() -> buffer.write(1, 2, 100, "second", 1000L));
+        while(meterRegistry.get("et.transaction-buffer.queue.depth").gauge().value() < 1)
+            Thread.sleep(1);
+
+        assertThrows(EtServiceUnavailableException.class, () -> buffer.write(1, 2, 100, "third", 1000L));
+        release.countDown();
+        assertEquals("first", inFlight.get(5, TimeUnit.SECONDS).getNote());
+        assertEquals("second", queued.get(5, TimeUnit.SECONDS).getNote());
+        assertEquals(1.0, meterRegistry.get("et.transaction-buffer.rejected").counter().count(), 0.0);
+    }
+
+    private TransactionWriteBuffer buffer(int capacity, int maxBatchSize, long maxDelayMillis) {
+        return new TransactionWriteBuffer(transactionRepository, transactionManager, routingDataSource, categoryCache,
+                capacity, maxBatchSize, maxDelayMillis, 5000, meterRegistry);
+    }
+
+    private List<Future<Transaction>> writeConcurrently(int... amounts) {
+        return Arrays.stream(amounts)
+                .mapToObj(amount -> callers.submit(() -> buffer.write(1, 2, amount, null, 1000L)))
+                .collect(Collectors.toList());
+    }
+
+    private List<Transaction> createdRows(List<Transaction> rows) {
+        return rows.stream().map(this::created).collect(Collectors.toList());
+    }
+
+    private Transaction created(Transaction row) {
+        return new Transaction(nextId.incrementAndGet(), row.getCategoryId(), row.getUserId(), row.getAmount(),
+                row.getNote(), row.getTransactionDate());
+    }
+
+    private static void assertCause(Class<? extends Throwable> expected, Future<?> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected " + expected.getSimpleName());
+        }catch (ExecutionException e) {
+            assertEquals(expected, e.getCause().getClass());
+        }
+    }
+}
@@ -2,18 +2,14 @@ package com.pairlearning.expensetracker.unittests;
 
 import com.pairlearning.expensetracker.domain.User;
 import com.pairlearning.expensetracker.exceptions.EtAuthException;
+import com.pairlearning.expensetracker.repositories.SequenceIdAllocator;
 import com.pairlearning.expensetracker.repositories.UserRepositoryImpl;
 import org.junit.Before;
 import org.junit.Test;
 import org.mindrot.jbcrypt.BCrypt;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.RowMapper;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
-
-import java.sql.PreparedStatement;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -31,6 +27,9 @@ public class UserRepositoryImplTest {
         jdbcTemplate = mock(JdbcTemplate.class);
         userRepository = new UserRepositoryImpl();
         userRepository.setJdbcTemplate(jdbcTemplate);
+        SequenceIdAllocator idAllocator = mock(SequenceIdAllocator.class);
+        when(idAllocator.nextId("ET_USERS_SEQ")).thenReturn(1);
+        userRepository.setIdAllocator(idAllocator);
     }
 
     @Test
@@ -40,45 +39,55 @@ public class UserRepositoryImplTest {
         String email = "test@example.com";
         String password = "password";
 
-        doThrow(new RuntimeException("Database error")).when(jdbcTemplate).update(any(), any(KeyHolder.class));
+        when(jdbcTemplate.queryForObject(anyString(), any(Object[].class), any(RowMapper.class)))
+                .thenThrow(new RuntimeException("Database error"));
 
         assertThrows(EtAuthException.class, () -> userRepository.create(firstName, lastName, email, password));
     }
 
     @Test
-    public void findByEmailAndPasswordShouldReturnUserWhenCredentialsAreValid() throws EtAuthException {
+    public void createShouldReturnInsertedUser() {
+        User user = new User(1, "Test", "User", "test@example.com", "hashedPassword");
+
+        when(jdbcTemplate.queryForObject(anyString(), eq(new Object[]{1, "Test", "User", "test@example.com", "hashedPassword"}), any(RowMapper.class)))
+                .thenReturn(user);
+
+        User result = userRepository.create("Test", "User", "test@example.com", "hashedPassword");
+
+        assertEquals(user, result);
+    }
+
+    @Test
+    public void findByEmailShouldReturnUserWhenEmailExists() throws EtAuthException {
         String email = "test@example.com";
-        String password = "password";
-        String hashedPassword = BCrypt.hashpw(password, BCrypt.gensalt());
+        String hashedPassword = BCrypt.hashpw("password", BCrypt.gensalt());
         User user = new User(1, "Test", "User", email, hashedPassword);
 
         when(jdbcTemplate.queryForObject(anyString(), any(Object[].class), any(RowMapper.class))).thenReturn(user);
 
-        User result = userRepository.findByEmailAndPassword(email, password);
+        User result = userRepository.findByEmail(email);
 
         assertEquals(user, result);
     }
 
     @Test
-    public void findByEmailAndPasswordShouldThrowEtAuthExceptionWhenCredentialsAreInvalid() {
+    public void findByEmailShouldThrowEtAuthExceptionWhenEmailIsUnknown() {
         String email = "test@example.com";
-        String password = "password";
 
         when(jdbcTemplate.queryForObject(anyString(), any(Object[].class), any(RowMapper.class)))
                 .thenThrow(new EmptyResultDataAccessException(1));
 
-        assertThrows(EtAuthException.class, () -> userRepository.findByEmailAndPassword(email, password));
+        assertThrows(EtAuthException.class, () -> userRepository.findByEmail(email));
     }
 
     @Test
-    public void getCountByEmailShouldReturnCount() {
-        String email = "test@example.com";
-
-        when(jdbcTemplate.queryForObject(anyString(), any(Object[].class), eq(Integer.class))).thenReturn(1);
-
-        Integer count = userRepository.getCountByEmail(email);
+    public void createShouldReportTakenEmailWhenInsertReturnsNoRow() {
+        when(jdbcTemplate.queryForObject(anyString(), any(Object[].class), any(RowMapper.class)))
+                .thenThrow(new EmptyResultDataAccessException(1));
 
-        assertEquals(1, (int) count);
+        EtAuthException e = assertThrows(EtAuthException.class,
+                () -> userRepository.create("Test", "User", "test@example.com", "hashedPassword"));
+        assertEquals("Email already in use", e.getMessage());
     }
 
     @Test
@@ -14,6 +14,7 @@ import org.springframework.http.ResponseEntity;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -44,10 +45,10 @@ public class UserResourceTest {
 
         // Mock UserService behavior for registration
         User mockUser = new User(1, "John", "Doe", "john.doe@example.com", "password123");
-        when(userService.registerUser("John", "Doe", "john.doe@example.com", "password123")).thenReturn(mockUser);
+        when(userService.registerUser("John", "Doe", "john.doe@example.com", "password123")).thenReturn(CompletableFuture.completedFuture(mockUser));
 
         // Perform user registration
-        ResponseEntity<Map<String, String>> responseEntity = userResource.registerUser(userMap);
+        ResponseEntity<Map<String, String>> responseEntity = userResource.registerUser(userMap).join();
 
         // Verify that a valid JWT token is returned
         assertNotNull(responseEntity);
@@ -66,10 +67,10 @@ public class UserResourceTest {
 
         // Mock UserService behavior for registration
         User mockUser = new User(1, "John", "Doe", "john.doe@example.com", null);
-        when(userService.registerUser("John", "Doe", "john.doe@example.com", null)).thenReturn(mockUser);
+        when(userService.registerUser("John", "Doe", "john.doe@example.com", null)).thenReturn(CompletableFuture.completedFuture(mockUser));
 
         // Perform user registration
-        ResponseEntity<Map<String, String>> responseEntity = userResource.registerUser(userMap);
+        ResponseEntity<Map<String, String>> responseEntity = userResource.registerUser(userMap).join();
 
         // Verify that a valid JWT token is returned
         assertNotNull(responseEntity);
@@ -88,10 +89,10 @@ public class UserResourceTest {
 
         // Mock UserService behavior for registration
         User mockUser = new User(1, "John", "Doe", null, "password123");
-        when(userService.registerUser("John", "Doe", null, "password123")).thenReturn(mockUser);
+        when(userService.registerUser("John", "Doe", null, "password123")).thenReturn(CompletableFuture.completedFuture(mockUser));
 
         // Perform user registration
-        ResponseEntity<Map<String, String>> responseEntity = userResource.registerUser(userMap);
+        ResponseEntity<Map<String, String>> responseEntity = userResource.registerUser(userMap).join();
 
         // Verify that a valid JWT token is returned
         assertNotNull(responseEntity);
@@ -108,10 +109,10 @@ public class UserResourceTest {
 
         // Mock UserService behavior for login
         User mockUser = new User(1, "John", "Doe", "john.doe@example.com", "password123");
-        when(userService.validateUser("john.doe@example.com", "password123")).thenReturn(mockUser);
+        when(userService.validateUser("john.doe@example.com", "password123")).thenReturn(CompletableFuture.completedFuture(mockUser));
 
         // Perform user login
-        ResponseEntity<Map<String, String>> responseEntity = userResource.loginUser(userMap);
+        ResponseEntity<Map<String, String>> responseEntity = userResource.loginUser(userMap).join();
 
         // Verify that a valid JWT token is returned
         assertNotNull(responseEntity);
@@ -127,10 +128,10 @@ public class UserResourceTest {
         userMap.put("password", "invalid_password");
 
         // Mock UserService behavior for user not found
-        when(userService.validateUser("teste@example.com", "invalid_password")).thenReturn(null);
+        when(userService.validateUser("teste@example.com", "invalid_password")).thenReturn(CompletableFuture.completedFuture(null));
 
         // Perform user login
-        ResponseEntity<Map<String, String>> responseEntity = userResource.loginUser(userMap);
+        ResponseEntity<Map<String, String>> responseEntity = userResource.loginUser(userMap).join();
 
         // Verify that an error response is returned
         assertNotNull(responseEntity);
@@ -147,10 +148,10 @@ public class UserResourceTest {
 
         // Mock UserService behavior for login
         User mockUser = new User(1, "John", "Doe", "", "");
-        when(userService.validateUser("", "")).thenReturn(mockUser);
+        when(userService.validateUser("", "")).thenReturn(CompletableFuture.completedFuture(mockUser));
 
         // Perform user login
-        ResponseEntity<Map<String, String>> responseEntity = userResource.loginUser(userMap);
+        ResponseEntity<Map<String, String>> responseEntity = userResource.loginUser(userMap).join();
 
         // Verify that a valid JWT token is returned
         assertNotNull(responseEntity);
@@ -3,12 +3,33 @@ package com.pairlearning.expensetracker.unittests;
 import com.pairlearning.expensetracker.domain.User;
 import com.pairlearning.expensetracker.exceptions.EtAuthException;
 import com.pairlearning.expensetracker.repositories.UserRepository;
+import com.pairlearning.expensetracker.exceptions.EtServiceUnavailableException;
+import com.pairlearning.expensetracker.exceptions.EtTooManyRequestsException;
+import com.pairlearning.expensetracker.services.LoginThrottle;
+import com.pairlearning.expensetracker.services.PasswordHasher;
 import com.pairlearning.expensetracker.services.UserServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mindrot.jbcrypt.BCrypt;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class UserServiceImplTest {
@@ -17,22 +38,33 @@ public class UserServiceImplTest {
 
     private UserServiceImpl userService;
 
+    private ExecutorService insertExecutor;
+
     @Before
     public void setUp() {
         userRepository = mock(UserRepository.class);
+        insertExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "insert"));
         userService = new UserServiceImpl();
         userService.setUserRepository(userRepository);
+        userService.setPasswordHasher(new PasswordHasher(2, 8, new SimpleMeterRegistry()));
+        userService.setTransactionTemplate(new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        userService.setInsertExecutor(insertExecutor);
+    }
+
+    @After
+    public void tearDown() {
+        insertExecutor.shutdown();
     }
 
     @Test
     public void validateUserShouldReturnUserWhenCredentialsAreValid() throws EtAuthException {
         String email = "test@example.com";
         String password = "password";
-        User user = new User(1, "Test", "User", email, "hashedPassword");
+        User user = new User(1, "Test", "User", email, BCrypt.hashpw(password, BCrypt.gensalt(4)));
 
-        when(userRepository.findByEmailAndPassword(email, password)).thenReturn(user);
+        when(userRepository.findByEmail(email)).thenReturn(user);
 
-        User result = userService.validateUser(email, password);
+        User result = userService.validateUser(email, password).join();
 
         assertEquals(user, result);
     }
@@ -42,11 +74,36 @@ public class UserServiceImplTest {
         String email = "test@example.com";
         String password = "password";
 
-        when(userRepository.findByEmailAndPassword(email, password)).thenThrow(new EtAuthException("Invalid email/password"));
+        when(userRepository.findByEmail(email)).thenThrow(new EtAuthException("Invalid email/password"));
 
         assertThrows(EtAuthException.class, () -> userService.validateUser(email, password));
     }
 
+    @Test
+    public void validateUserShouldFailWhenPasswordDoesNotMatch() {
+        String email = "test@example.com";
+        User user = new User(1, "Test", "User", email, BCrypt.hashpw("password", BCrypt.gensalt(4)));
+
+        when(userRepository.findByEmail(email)).thenReturn(user);
+
+        CompletionException e = assertThrows(CompletionException.class, () -> userService.validateUser(email, "wrong").join());
+        assertTrue(e.getCause() instanceof EtAuthException);
+    }
+
+    @Test
+    public void hashingShouldBeRejectedWhenQueueIsFull() {
+        // One worker and one queue slot: a cost-10 hash keeps the worker busy long enough to overflow
+        PasswordHasher passwordHasher = new PasswordHasher(1, 1, new SimpleMeterRegistry());
+        try {
+            assertThrows(EtServiceUnavailableException.class, () -> {
+                for(int i = 0; i < 3; i++)
+                    passwordHasher.hash("password");
+            });
+        } finally {
+            passwordHasher.shutdown();
+        }
+    }
+
     @Test
     public void registerUserShouldReturnUserWhenDetailsAreValid() throws EtAuthException {
         String firstName = "Test";
@@ -55,13 +112,35 @@ public class UserServiceImplTest {
         String password = "password";
         User user = new User(1, firstName, lastName, email, "hashedPassword");
 
-        when(userRepository.getCountByEmail(email)).thenReturn(0);
-        when(userRepository.create(firstName, lastName, email, password)).thenReturn(1);
-        when(userRepository.findById(1)).thenReturn(user);
+        when(userRepository.create(eq(firstName), eq(lastName), eq(email), anyString())).thenAnswer(invocation -> {
+            assertEquals("insert", Thread.currentThread().getName());
+            return user;
+        });
 
-        User result = userService.registerUser(firstName, lastName, email, password);
+        User result = userService.registerUser(firstName, lastName, email, password).join();
 
         assertEquals(user, result);
+        verify(userRepository, never()).findById(anyInt());
+    }
+
+    @Test
+    public void registerUserShouldBeRejectedWhenInsertQueueIsFull() {
+        ThreadPoolExecutor fullExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            fullExecutor.execute(() -> awaitQuietly(release));
+            fullExecutor.execute(() -> awaitQuietly(release));
+            userService.setInsertExecutor(fullExecutor);
+
+            CompletionException e = assertThrows(CompletionException.class,
+                    () -> userService.registerUser("Test", "User", "test@example.com", "password").join());
+            assertTrue(e.getCause() instanceof EtServiceUnavailableException);
+            verifyNoInteractions(userRepository);
+        } finally {
+            release.countDown();
+            fullExecutor.shutdown();
+        }
     }
 
     @Test
@@ -81,8 +160,41 @@ public class UserServiceImplTest {
         String email = "test@example.com";
         String password = "password";
 
-        when(userRepository.getCountByEmail(email)).thenReturn(1);
+        when(userRepository.create(eq(firstName), eq(lastName), eq(email), anyString()))
+                .thenThrow(new EtAuthException("Email already in use"));
 
-        assertThrows(EtAuthException.class, () -> userService.registerUser(firstName, lastName, email, password));
+        CompletionException e = assertThrows(CompletionException.class,
+                () -> userService.registerUser(firstName, lastName, email, password).join());
+        assertTrue(e.getCause() instanceof EtAuthException);
+    }
+
+    @Test
+    public void registerUserShouldRejectInvalidDetailsWithoutTouchingRepository() {
+        assertThrows(EtAuthException.class, () -> userService.registerUser("Test", "User", "test@example.com", null));
+        assertThrows(EtAuthException.class, () -> userService.registerUser("Test", "User", null, "password"));
+        assertThrows(EtAuthException.class, () -> userService.registerUser("Test", "User", "a.very.long.address@example.com", "password"));
+
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    public void throttledLoginShouldBeRejectedBeforeUserLookup() {
+        userService.setEmailLoginThrottle(new LoginThrottle("email", 100, 1, 1, new SimpleMeterRegistry()));
+        String email = "test@example.com";
+        User user = new User(1, "Test", "User", email, BCrypt.hashpw("password", BCrypt.gensalt(4)));
+        when(userRepository.findByEmail(email)).thenReturn(user);
+
+        userService.validateUser("Test@Example.com", "wrong");
+        assertThrows(EtTooManyRequestsException.class, () -> userService.validateUser(email, "password"));
+
+        verify(userRepository, times(1)).findByEmail(email);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }